@@ -0,0 +1,26 @@
+package com.megakruk.springsecuritycourse;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the application for benchmarks against the in-memory H2 database configured in
+ * the test resources.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(SpringSecurityCourseApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "application.jwt.revocationFile=target/benchmark-revoked-tokens.txt"
+                )
+                .properties(properties)
+                .run();
+    }
+}
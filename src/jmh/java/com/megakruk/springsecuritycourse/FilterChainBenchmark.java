@@ -0,0 +1,68 @@
+package com.megakruk.springsecuritycourse;
+
+import com.megakruk.springsecuritycourse.jwt.JwtConfig;
+import com.megakruk.springsecuritycourse.jwt.JwtTokenService;
+import com.megakruk.springsecuritycourse.security.ApplicationUserRole;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A typical authenticated {@code GET /api/v1/students/{id}} through the whole security
+ * filter chain of a booted application. The controller is replaced by a no-op chain, so
+ * this measures security overhead only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilterChainBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private ConfigurableApplicationContext context;
+    private Filter springSecurityFilterChain;
+    private String authorizationHeader;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        springSecurityFilterChain = context.getBean("springSecurityFilterChain", Filter.class);
+
+        JwtConfig jwtConfig = context.getBean(JwtConfig.class);
+        String token = context.getBean(JwtTokenService.class).createAccessToken(
+                "mark", ApplicationUserRole.STUDENT.getGrantedAuthorities(), UUID.randomUUID().toString());
+        authorizationHeader = jwtConfig.getAuthorizationHeader();
+        authorization = jwtConfig.getTokenPrefix() + token;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getStudent() throws ServletException, IOException {
+        // Some filters mark the request as processed, so every invocation needs a fresh one
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students/1");
+        request.setServletPath("/api/v1/students/1");
+        request.addHeader(authorizationHeader, authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        springSecurityFilterChain.doFilter(request, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response.getStatus();
+    }
+}
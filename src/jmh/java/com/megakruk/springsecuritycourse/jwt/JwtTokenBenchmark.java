@@ -0,0 +1,86 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.megakruk.springsecuritycourse.security.ApplicationUserRole;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token signing as done on login and token verification as done by {@link JwtTokenVerifier},
+ * with and without the verified token cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtTokenBenchmark {
+
+    private static final String KEY = "rtyhwue5h7e9ha78gewgh0e9sdfsdgrtye57y5yedrgdrt55yr56y5rthdtr6y66yudfe5y5ye5";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private final Set<? extends GrantedAuthority> authorities = ApplicationUserRole.ADMIN.getGrantedAuthorities();
+    private final String familyId = UUID.randomUUID().toString();
+
+    private Path revokedTokensFile;
+    private JwtTokenService jwtTokenService;
+    private JwtTokenCache jwtTokenCache;
+    private JwtTokenVerifier jwtTokenVerifier;
+    private String token;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws IOException {
+        JwtConfig jwtConfig = new JwtConfig();
+        jwtConfig.setTokenPrefix("Bearer ");
+        revokedTokensFile = Files.createTempFile("revoked-tokens", ".txt");
+
+        jwtTokenService = new JwtTokenService(Keys.hmacShaKeyFor(KEY.getBytes()), jwtConfig);
+        jwtTokenCache = new JwtTokenCache(jwtConfig, new SimpleMeterRegistry());
+        RevokedTokenRegistry revokedTokenRegistry =
+                new RevokedTokenRegistry(new FileRevokedTokenStore(revokedTokensFile), jwtConfig);
+        jwtTokenVerifier = new JwtTokenVerifier(jwtTokenService, jwtTokenCache, revokedTokenRegistry);
+
+        token = jwtTokenService.createAccessToken("dom", authorities, familyId);
+        request = new MockHttpServletRequest("GET", "/api/v1/students/1");
+        request.addHeader(jwtConfig.getAuthorizationHeader(), jwtConfig.getTokenPrefix() + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SecurityContextHolder.clearContext();
+        Files.deleteIfExists(revokedTokensFile);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtTokenService.createAccessToken("dom", authorities, familyId);
+    }
+
+    @Benchmark
+    public void verify() throws ServletException, IOException {
+        jwtTokenCache.invalidate(token);
+        jwtTokenVerifier.doFilter(request, response, NO_OP_CHAIN);
+    }
+
+    @Benchmark
+    public void verifyCached() throws ServletException, IOException {
+        jwtTokenVerifier.doFilter(request, response, NO_OP_CHAIN);
+    }
+}
@@ -0,0 +1,24 @@
+package com.megakruk.springsecuritycourse.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ApplicationUserRoleBenchmark {
+
+    @Param({"STUDENT", "ADMIN", "ADMININTERN"})
+    private ApplicationUserRole role;
+
+    @Benchmark
+    public Set<SimpleGrantedAuthority> grantedAuthorities() {
+        return role.getGrantedAuthorities();
+    }
+}
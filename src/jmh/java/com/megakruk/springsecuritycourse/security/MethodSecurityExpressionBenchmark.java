@@ -0,0 +1,56 @@
+package com.megakruk.springsecuritycourse.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MethodSecurityExpressionBenchmark {
+
+    @Param({"hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')", "hasAuthority('student:write')"})
+    private String expression;
+
+    private DefaultMethodSecurityExpressionHandler spelHandler;
+    private DefaultMethodSecurityExpressionHandler bitmaskHandler;
+    private Expression spelExpression;
+    private Expression bitmaskExpression;
+    private Authentication authentication;
+    private MethodInvocation methodInvocation;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        spelHandler = new DefaultMethodSecurityExpressionHandler();
+        bitmaskHandler = new DefaultMethodSecurityExpressionHandler();
+        bitmaskHandler.setExpressionParser(new AuthorityMaskExpressionParser(new SpelExpressionParser()));
+        spelExpression = spelHandler.getExpressionParser().parseExpression(expression);
+        bitmaskExpression = bitmaskHandler.getExpressionParser().parseExpression(expression);
+        authentication = new UsernamePasswordAuthenticationToken(
+                "dom", null, ApplicationUserRole.ADMIN.getGrantedAuthorities());
+        methodInvocation = new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+    }
+
+    @Benchmark
+    public boolean spel() {
+        return ExpressionUtils.evaluateAsBoolean(
+                spelExpression, spelHandler.createEvaluationContext(authentication, methodInvocation));
+    }
+
+    @Benchmark
+    public boolean bitmask() {
+        return ExpressionUtils.evaluateAsBoolean(
+                bitmaskExpression, bitmaskHandler.createEvaluationContext(authentication, methodInvocation));
+    }
+}
@@ -0,0 +1,47 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.BenchmarkApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import throughput against H2, reported in imported students per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(StudentImportBenchmark.ROWS)
+public class StudentImportBenchmark {
+
+    static final int ROWS = 1_000;
+
+    private ConfigurableApplicationContext context;
+    private StudentImportService studentImportService;
+    private long nextEmail;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        studentImportService = context.getBean(StudentImportService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StudentBulkResult importStudents() {
+        List<Student> students = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++)
+            students.add(new Student("Jim", "Bauman", "jimmy" + nextEmail++ + "@gmail.com"));
+        return studentImportService.importStudents(students);
+    }
+}
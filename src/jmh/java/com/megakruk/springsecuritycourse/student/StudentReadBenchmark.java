@@ -0,0 +1,76 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.BenchmarkApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading students as managed entities in a read-write transaction, as the read endpoints
+ * used to, against DTO projections in a read-only transaction. Run with {@code -prof gc}
+ * to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StudentReadBenchmark {
+
+    private static final int STUDENTS = 1_000;
+
+    private ConfigurableApplicationContext context;
+    private StudentRepo studentRepo;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private Long id;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        studentRepo = context.getBean(StudentRepo.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 0; i < STUDENTS; i++)
+            students.add(new Student("Jim", "Bauman" + i, "jimmy" + i + "@gmail.com"));
+        context.getBean(StudentImportService.class).importStudents(students);
+        id = studentRepo.selectStudentDtos(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object entityById() {
+        return readWrite.execute(status -> studentRepo.findStudentById(id).orElseThrow());
+    }
+
+    @Benchmark
+    public Object dtoById() {
+        return readOnly.execute(status -> studentRepo.selectStudentDtoById(id).orElseThrow());
+    }
+
+    @Benchmark
+    public Object entityPage() {
+        return readWrite.execute(status -> studentRepo.findAll(Sort.by("id")));
+    }
+
+    @Benchmark
+    public Object dtoPage() {
+        return readOnly.execute(status -> studentRepo.selectStudentDtos(PageRequest.of(0, STUDENTS, Sort.by("id"))).getContent());
+    }
+}
@@ -0,0 +1,56 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StudentSearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+            "an", "ber", "cha", "del", "ek", "fra", "gor", "ha", "is", "jo",
+            "kel", "lu", "mar", "ni", "ol", "pet", "ro", "sam", "ti", "vor"
+    };
+
+    @Param({"1000000"})
+    private int students;
+
+    @Param({"ma", "mar", "hamil", "gmail"})
+    private String query;
+
+    private StudentSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new StudentSearchIndex(mock(StudentRepo.class), mock(PlatformTransactionManager.class));
+        Random random = new Random(42);
+        for (long id = 1; id <= students; id++) {
+            String firstName = name(random, 2);
+            String lastName = name(random, 3);
+            index.put(new StudentDto(id, firstName, lastName, firstName + "." + lastName + id + "@gmail.com", 0L));
+        }
+    }
+
+    @Benchmark
+    public List<StudentDto> search() {
+        return index.search(query, 0, 50);
+    }
+
+    private static String name(Random random, int syllables) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < syllables; i++)
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class ApplicationUserCache implements UserCache {
+
+    private final Cache<String, UserDetails> users;
+
+    @Autowired
+    public ApplicationUserCache(ApplicationUserConfig applicationUserConfig, MeterRegistry meterRegistry) {
+        this.users = CacheBuilder.newBuilder()
+                .maximumSize(applicationUserConfig.getCacheSize())
+                .expireAfterWrite(Duration.ofMinutes(applicationUserConfig.getCacheExpirationAfterMinutes()))
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, users, "application.users");
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        return users.getIfPresent(username);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        users.put(user.getUsername(), user);
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        users.invalidate(username);
+    }
+}
@@ -0,0 +1,19 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "application.users")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ApplicationUserConfig {
+
+    private Integer cacheSize = 10_000;
+    private Integer cacheExpirationAfterMinutes = 10;
+    private boolean seedDefaultUsers = true;
+}
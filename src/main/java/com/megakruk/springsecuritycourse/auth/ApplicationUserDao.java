@@ -6,4 +6,6 @@ import java.util.Optional;
 public interface ApplicationUserDao {
 
     Optional<ApplicationUser> selectApplicationUserByUsername(String username);
+
+    Optional<ApplicationUser> updateApplicationUserPassword(String username, String encodedPassword);
 }
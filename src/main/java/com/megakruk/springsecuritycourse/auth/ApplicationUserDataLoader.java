@@ -0,0 +1,45 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import com.megakruk.springsecuritycourse.security.ApplicationUserRole;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import static com.megakruk.springsecuritycourse.security.ApplicationUserRole.*;
+
+@Component
+public class ApplicationUserDataLoader implements ApplicationRunner {
+
+    private final JpaApplicationUserDaoService applicationUserDao;
+    private final PasswordEncoder passwordEncoder;
+    private final ApplicationUserConfig applicationUserConfig;
+
+    @Autowired
+    public ApplicationUserDataLoader(
+            JpaApplicationUserDaoService applicationUserDao,
+            PasswordEncoder passwordEncoder,
+            ApplicationUserConfig applicationUserConfig
+    ) {
+        this.applicationUserDao = applicationUserDao;
+        this.passwordEncoder = passwordEncoder;
+        this.applicationUserConfig = applicationUserConfig;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!applicationUserConfig.isSeedDefaultUsers())
+            return;
+        seed("mark", "password", STUDENT);
+        seed("dom", "password2", ADMIN);
+        seed("david", "password3", ADMININTERN);
+    }
+
+    private void seed(String username, String password, ApplicationUserRole role) {
+        if (applicationUserDao.existsApplicationUser(username))
+            return;
+        applicationUserDao.saveApplicationUser(
+                new ApplicationUserEntity(username, passwordEncoder.encode(password), role));
+    }
+}
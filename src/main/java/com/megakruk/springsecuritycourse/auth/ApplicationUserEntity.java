@@ -0,0 +1,94 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import com.megakruk.springsecuritycourse.security.ApplicationUserRole;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Table(
+        name = "application_user",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "application_user_username_unique", columnNames = "username")
+        }
+)
+@Entity(name = "ApplicationUser")
+public class ApplicationUserEntity {
+
+    @Id
+    @SequenceGenerator(
+            name = "application_user_sequence",
+            sequenceName = "application_user_sequence",
+            allocationSize = 1
+    )
+    @GeneratedValue(
+            strategy = SEQUENCE,
+            generator = "application_user_sequence"
+    )
+    @Column(
+            name = "id",
+            updatable = false
+    )
+    private Long id;
+
+    @Column(
+            name = "username",
+            nullable = false
+    )
+    private String username;
+
+    @Column(
+            name = "password",
+            nullable = false
+    )
+    private String password;
+
+    @Enumerated(EnumType.STRING)
+    @Column(
+            name = "role",
+            nullable = false
+    )
+    private ApplicationUserRole role;
+
+    @Column(name = "account_non_expired", nullable = false)
+    private boolean accountNonExpired;
+
+    @Column(name = "account_non_locked", nullable = false)
+    private boolean accountNonLocked;
+
+    @Column(name = "credentials_non_expired", nullable = false)
+    private boolean credentialsNonExpired;
+
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled;
+
+    public ApplicationUserEntity(String username, String password, ApplicationUserRole role) {
+        this.username = username;
+        this.password = password;
+        this.role = role;
+        this.accountNonExpired = true;
+        this.accountNonLocked = true;
+        this.credentialsNonExpired = true;
+        this.enabled = true;
+    }
+
+    public ApplicationUser toApplicationUser() {
+        return new ApplicationUser(
+                username,
+                password,
+                role.getGrantedAuthorities(),
+                accountNonExpired,
+                accountNonLocked,
+                credentialsNonExpired,
+                enabled
+        );
+    }
+}
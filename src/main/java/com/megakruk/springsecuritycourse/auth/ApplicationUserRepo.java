@@ -0,0 +1,14 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ApplicationUserRepo extends JpaRepository<ApplicationUserEntity, Long> {
+
+    Optional<ApplicationUserEntity> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+}
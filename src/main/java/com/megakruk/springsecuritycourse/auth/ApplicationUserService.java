@@ -4,17 +4,18 @@ import com.megakruk.springsecuritycourse.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class ApplicationUserService implements UserDetailsService {
+public class ApplicationUserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final ApplicationUserDao applicationUserDao;
 
     @Autowired
-    public ApplicationUserService(@Qualifier("fake") ApplicationUserDao applicationUserDao) {
+    public ApplicationUserService(@Qualifier("jpa") ApplicationUserDao applicationUserDao) {
         this.applicationUserDao = applicationUserDao;
     }
 
@@ -25,4 +26,12 @@ public class ApplicationUserService implements UserDetailsService {
                 .orElseThrow(() ->
                         new UserNotFoundException("Username " + username + " was not found"));
     }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        return applicationUserDao
+                .updateApplicationUserPassword(user.getUsername(), newPassword)
+                .orElseThrow(() ->
+                        new UserNotFoundException("Username " + user.getUsername() + " was not found"));
+    }
 }
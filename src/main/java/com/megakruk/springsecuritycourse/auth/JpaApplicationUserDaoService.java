@@ -0,0 +1,51 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository("jpa")
+public class JpaApplicationUserDaoService implements ApplicationUserDao {
+
+    private final ApplicationUserRepo applicationUserRepo;
+    private final UserCache userCache;
+
+    @Autowired
+    public JpaApplicationUserDaoService(ApplicationUserRepo applicationUserRepo, UserCache userCache) {
+        this.applicationUserRepo = applicationUserRepo;
+        this.userCache = userCache;
+    }
+
+    @Override
+    public Optional<ApplicationUser> selectApplicationUserByUsername(String username) {
+        return applicationUserRepo
+                .findByUsername(username)
+                .map(ApplicationUserEntity::toApplicationUser);
+    }
+
+    @Override
+    @Transactional
+    public Optional<ApplicationUser> updateApplicationUserPassword(String username, String encodedPassword) {
+        Optional<ApplicationUser> updated = applicationUserRepo
+                .findByUsername(username)
+                .map(applicationUser -> {
+                    applicationUser.setPassword(encodedPassword);
+                    return applicationUser.toApplicationUser();
+                });
+        userCache.removeUserFromCache(username);
+        return updated;
+    }
+
+    public boolean existsApplicationUser(String username) {
+        return applicationUserRepo.existsByUsername(username);
+    }
+
+    public ApplicationUserEntity saveApplicationUser(ApplicationUserEntity applicationUser) {
+        ApplicationUserEntity saved = applicationUserRepo.save(applicationUser);
+        userCache.removeUserFromCache(saved.getUsername());
+        return saved;
+    }
+}
@@ -0,0 +1,12 @@
+package com.megakruk.springsecuritycourse.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class StoredFileNotFoundException extends RuntimeException {
+
+    public StoredFileNotFoundException(String message) {
+        super(message);
+    }
+}
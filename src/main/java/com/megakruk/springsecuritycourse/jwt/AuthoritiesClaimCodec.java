@@ -0,0 +1,96 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.megakruk.springsecuritycourse.security.ApplicationUserPermission;
+import com.megakruk.springsecuritycourse.security.ApplicationUserRole;
+import io.jsonwebtoken.MalformedJwtException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Packs a role and its {@link ApplicationUserPermission} bitmask into one integer claim:
+ * {@code role.ordinal() << PERMISSION_BITS | permissionMask}. The shift is fixed rather than
+ * derived from the number of permissions, so issued tokens keep decoding the same way as
+ * long as new roles and permissions (up to {@value #PERMISSION_BITS}) are only appended.
+ */
+public final class AuthoritiesClaimCodec {
+
+    public static final String CLAIM = "rp";
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final int PERMISSION_BITS = 16;
+    private static final int KNOWN_PERMISSIONS = ApplicationUserPermission.values().length;
+    private static final int PERMISSION_MASK = (1 << PERMISSION_BITS) - 1;
+    private static final int KNOWN_PERMISSION_MASK = (1 << KNOWN_PERMISSIONS) - 1;
+
+    private static final Map<String, ApplicationUserRole> ROLES = Arrays.stream(ApplicationUserRole.values())
+            .collect(ImmutableMap.toImmutableMap(role -> ROLE_PREFIX + role.name(), Function.identity()));
+    private static final Map<String, ApplicationUserPermission> PERMISSIONS = Arrays.stream(ApplicationUserPermission.values())
+            .collect(ImmutableMap.toImmutableMap(ApplicationUserPermission::getPermission, Function.identity()));
+    private static final List<Set<GrantedAuthority>> AUTHORITY_SETS = internAuthoritySets();
+
+    private AuthoritiesClaimCodec() {
+    }
+
+    public static Optional<Integer> encode(Collection<? extends GrantedAuthority> authorities) {
+        ApplicationUserRole role = null;
+        int permissionMask = 0;
+        for (GrantedAuthority grantedAuthority : authorities) {
+            String authority = grantedAuthority.getAuthority();
+            ApplicationUserRole authorityRole = ROLES.get(authority);
+            if (authorityRole != null) {
+                if (role != null)
+                    return Optional.empty();
+                role = authorityRole;
+                continue;
+            }
+            ApplicationUserPermission permission = PERMISSIONS.get(authority);
+            if (permission == null)
+                return Optional.empty();
+            permissionMask |= permission.getMask();
+        }
+        if (role == null)
+            return Optional.empty();
+        return Optional.of(role.ordinal() << PERMISSION_BITS | permissionMask);
+    }
+
+    public static Set<GrantedAuthority> decode(int code) {
+        int role = code >>> PERMISSION_BITS;
+        int permissionMask = code & PERMISSION_MASK;
+        if (code < 0 || role >= ApplicationUserRole.values().length || (permissionMask & ~KNOWN_PERMISSION_MASK) != 0)
+            throw new MalformedJwtException("Unknown authorities code " + code);
+        return AUTHORITY_SETS.get(role << KNOWN_PERMISSIONS | permissionMask);
+    }
+
+    /**
+     * Indexed by {@code role.ordinal() << KNOWN_PERMISSIONS | permissionMask}.
+     */
+    private static List<Set<GrantedAuthority>> internAuthoritySets() {
+        if (KNOWN_PERMISSIONS > PERMISSION_BITS)
+            throw new IllegalStateException("At most " + PERMISSION_BITS + " permissions fit into the claim");
+        ApplicationUserPermission[] permissions = ApplicationUserPermission.values();
+        ImmutableList.Builder<Set<GrantedAuthority>> authoritySets = ImmutableList.builder();
+        for (ApplicationUserRole role : ApplicationUserRole.values()) {
+            for (int permissionMask = 0; permissionMask < 1 << KNOWN_PERMISSIONS; permissionMask++) {
+                ImmutableSet.Builder<GrantedAuthority> authorities = ImmutableSet.builder();
+                for (ApplicationUserPermission permission : permissions) {
+                    if ((permissionMask & permission.getMask()) != 0)
+                        authorities.add(new SimpleGrantedAuthority(permission.getPermission()));
+                }
+                authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + role.name()));
+                authoritySets.add(authorities.build());
+            }
+        }
+        return authoritySets.build();
+    }
+}
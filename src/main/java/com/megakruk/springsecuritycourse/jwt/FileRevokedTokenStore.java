@@ -0,0 +1,77 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * One "tokenId expiresAtMillis" line per revoked token. Revocations are appended;
+ * the file is rewritten only when expired entries are pruned.
+ */
+public class FileRevokedTokenStore implements RevokedTokenStore {
+
+    private final Path file;
+
+    public FileRevokedTokenStore(Path file) {
+        this.file = file.toAbsolutePath();
+    }
+
+    @Override
+    public synchronized Map<String, Long> loadRevokedTokens() {
+        if (!Files.exists(file))
+            return Map.of();
+
+        Map<String, Long> revokedTokens = new HashMap<>();
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                int separator = line.lastIndexOf(' ');
+                if (separator > 0)
+                    revokedTokens.put(line.substring(0, separator), Long.parseLong(line.substring(separator + 1)));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return revokedTokens;
+    }
+
+    @Override
+    public synchronized void addRevokedToken(String tokenId, long expiresAt) {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, List.of(toLine(tokenId, expiresAt)), StandardCharsets.UTF_8, CREATE, APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void replaceRevokedTokens(Map<String, Long> revokedTokens) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        List<String> lines = revokedTokens.entrySet().stream()
+                .map(entry -> toLine(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toLine(String tokenId, long expiresAt) {
+        return tokenId + " " + expiresAt;
+    }
+}
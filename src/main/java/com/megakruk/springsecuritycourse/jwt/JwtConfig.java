@@ -16,9 +16,18 @@ public class JwtConfig {
 
     private String key;
     private String tokenPrefix;
-    private Integer tokenExpirationAfterDays;
+    private Integer accessTokenExpirationAfterMinutes = 15;
+    private Integer refreshTokenExpirationAfterDays = 10;
+    private Integer verifiedTokenCacheSize = 10_000;
+    private boolean compactAuthorities = true;
+    private String revocationFile = "revoked-tokens.txt";
+    private Integer expectedRevocations = 100_000;
 
     public String getAuthorizationHeader() {
         return HttpHeaders.AUTHORIZATION;
     }
+
+    public String getRefreshTokenHeader() {
+        return "Refresh-Token";
+    }
 }
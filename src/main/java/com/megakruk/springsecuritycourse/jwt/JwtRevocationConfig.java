@@ -0,0 +1,17 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class JwtRevocationConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(RevokedTokenStore.class)
+    public RevokedTokenStore revokedTokenStore(JwtConfig jwtConfig) {
+        return new FileRevokedTokenStore(Paths.get(jwtConfig.getRevocationFile()));
+    }
+}
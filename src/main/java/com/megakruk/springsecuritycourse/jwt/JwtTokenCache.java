@@ -0,0 +1,58 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+@Component
+public class JwtTokenCache {
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    @Autowired
+    public JwtTokenCache(JwtConfig jwtConfig, MeterRegistry meterRegistry) {
+        this.verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(jwtConfig.getVerifiedTokenCacheSize())
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+    }
+
+    public VerifiedToken get(String token) {
+        String digest = digest(token);
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+        if (verifiedToken == null)
+            return null;
+        if (verifiedToken.getExpiration().getTime() <= System.currentTimeMillis()) {
+            verifiedTokens.invalidate(digest);
+            return null;
+        }
+        return verifiedToken;
+    }
+
+    public void put(String token, VerifiedToken verifiedToken) {
+        // Tokens without an expiration would stay trusted for as long as they stay cached
+        if (verifiedToken.getExpiration() == null)
+            return;
+        verifiedTokens.put(digest(token), verifiedToken);
+    }
+
+    public void invalidate(String token) {
+        verifiedTokens.invalidate(digest(token));
+    }
+
+    public CacheStats stats() {
+        return verifiedTokens.stats();
+    }
+
+    private static String digest(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+    }
+}
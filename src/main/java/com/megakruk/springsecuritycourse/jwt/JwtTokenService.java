@@ -0,0 +1,126 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.google.common.base.Strings;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Component
+public class JwtTokenService {
+
+    private static final String LEGACY_AUTHORITIES_CLAIM = "authorities";
+    private static final String TOKEN_TYPE_CLAIM = "typ";
+    private static final String REFRESH_TOKEN_TYPE = "refresh";
+    private static final String FAMILY_CLAIM = "fam";
+
+    private final Key key;
+    private final JwtConfig jwtConfig;
+    private final JwtParser jwtParser;
+
+    @Autowired
+    public JwtTokenService(Key key, JwtConfig jwtConfig) {
+        this.key = key;
+        this.jwtConfig = jwtConfig;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+    }
+
+    public String createAccessToken(
+            String username,
+            Collection<? extends GrantedAuthority> authorities,
+            String familyId
+    ) {
+        Instant now = Instant.now();
+        return newToken(username, authorities)
+                .setId(UUID.randomUUID().toString())
+                .claim(FAMILY_CLAIM, familyId)
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(
+                        Duration.ofMinutes(jwtConfig.getAccessTokenExpirationAfterMinutes()))))
+                .compact();
+    }
+
+    public String createRefreshToken(
+            String username,
+            Collection<? extends GrantedAuthority> authorities,
+            String familyId,
+            String tokenId,
+            Date expiration
+    ) {
+        return newToken(username, authorities)
+                .setId(tokenId)
+                .claim(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE)
+                .claim(FAMILY_CLAIM, familyId)
+                .setIssuedAt(new Date())
+                .setExpiration(expiration)
+                .compact();
+    }
+
+    public Optional<String> resolveToken(HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(jwtConfig.getAuthorizationHeader());
+
+        if (Strings.isNullOrEmpty(authorizationHeader)
+                || !authorizationHeader.startsWith(jwtConfig.getTokenPrefix()))
+            return Optional.empty();
+
+        return Optional.of(authorizationHeader.replace(jwtConfig.getTokenPrefix(), ""));
+    }
+
+    public Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities(Claims claims) {
+        Integer authoritiesCode = claims.get(AuthoritiesClaimCodec.CLAIM, Integer.class);
+        if (authoritiesCode != null)
+            return AuthoritiesClaimCodec.decode(authoritiesCode);
+
+        var authorities = (List<Map<String, String>>) claims.get(LEGACY_AUTHORITIES_CLAIM);
+
+        return authorities.stream()
+                .map(m -> new SimpleGrantedAuthority(m.get("authority")))
+                .collect(Collectors.toSet());
+    }
+
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM, String.class));
+    }
+
+    public String getFamilyId(Claims claims) {
+        return claims.get(FAMILY_CLAIM, String.class);
+    }
+
+    private JwtBuilder newToken(String username, Collection<? extends GrantedAuthority> authorities) {
+        Optional<Integer> authoritiesCode = jwtConfig.isCompactAuthorities()
+                ? AuthoritiesClaimCodec.encode(authorities)
+                : Optional.empty();
+
+        JwtBuilder jwtBuilder = Jwts.builder()
+                .setSubject(username);
+
+        if (authoritiesCode.isPresent())
+            jwtBuilder.claim(AuthoritiesClaimCodec.CLAIM, authoritiesCode.get());
+        else
+            jwtBuilder.claim(LEGACY_AUTHORITIES_CLAIM, authorities);
+
+        return jwtBuilder.signWith(key);
+    }
+}
@@ -1,14 +1,8 @@
 package com.megakruk.springsecuritycourse.jwt;
 
-import com.google.common.base.Strings;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
-import lombok.AllArgsConstructor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -17,17 +11,24 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.security.Key;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.Optional;
 
-@AllArgsConstructor
 public class JwtTokenVerifier extends OncePerRequestFilter {
 
-    private final Key key;
-    private final JwtConfig jwtConfig;
+    private final JwtTokenService jwtTokenService;
+    private final JwtTokenCache jwtTokenCache;
+    private final RevokedTokenRegistry revokedTokenRegistry;
+
+    public JwtTokenVerifier(
+            JwtTokenService jwtTokenService,
+            JwtTokenCache jwtTokenCache,
+            RevokedTokenRegistry revokedTokenRegistry
+    ) {
+        this.jwtTokenService = jwtTokenService;
+        this.jwtTokenCache = jwtTokenCache;
+        this.revokedTokenRegistry = revokedTokenRegistry;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -36,54 +37,41 @@ public class JwtTokenVerifier extends OncePerRequestFilter {
             FilterChain filterChain
     ) throws ServletException, IOException {
 
-        String authorizationHeader = request.getHeader(jwtConfig.getAuthorizationHeader());
+        Optional<String> resolvedToken = jwtTokenService.resolveToken(request);
 
-        if(
-                Strings.isNullOrEmpty(authorizationHeader)
-                        || !authorizationHeader.startsWith(jwtConfig.getTokenPrefix())) {
+        if (resolvedToken.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String token = authorizationHeader.replace(jwtConfig.getTokenPrefix(), "");
+        String token = resolvedToken.get();
 
-        try {
-//            DEPRECATED
-//            Jws<Claims> claimsJws = Jwts.parser()
-//                    .setSigningKey(key)
-//                    .parseClaimsJws(token);
+        VerifiedToken verifiedToken = jwtTokenCache.get(token);
 
-            Jws<Claims> claimsJws = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
+        if (verifiedToken == null) {
+            try {
+                Claims body = jwtTokenService.parseClaims(token);
 
-            Claims body = claimsJws.getBody();
+                if (jwtTokenService.isRefreshToken(body))
+                    throw new IllegalStateException(String.format("Token %s is a refresh token", token));
 
-            String username = body.getSubject();
+                String username = body.getSubject();
 
-            var authorities = (List<Map<String, String>>) body.get("authorities");
+                Collection<? extends GrantedAuthority> grantedAuthorities = jwtTokenService.getAuthorities(body);
 
-            Set<SimpleGrantedAuthority> simpleGrantedAuthorities = authorities.stream()
-                    .map(m -> new SimpleGrantedAuthority(m.get("authority")))
-                    .collect(Collectors.toSet());
+                verifiedToken = new VerifiedToken(username, grantedAuthorities, body.getId(), body.getExpiration());
+                jwtTokenCache.put(token, verifiedToken);
 
-            Authentication authentication = new UsernamePasswordAuthenticationToken(
-                    username,
-                    null,
-                    simpleGrantedAuthorities
-            );
+            } catch (JwtException e) {
+                throw new IllegalStateException(String.format("Token %s cannot be trusted", token));
+            }
+        }
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (revokedTokenRegistry.isRevoked(verifiedToken.getTokenId()))
+            throw new IllegalStateException(String.format("Token %s has been revoked", token));
 
-        } catch (JwtException e) {
-            throw new IllegalStateException(String.format("Token %s cannot be trusted", token));
-        }
+        SecurityContextHolder.getContext().setAuthentication(verifiedToken.newAuthentication());
 
         filterChain.doFilter(request, response);
     }
 }
-
-
-
-
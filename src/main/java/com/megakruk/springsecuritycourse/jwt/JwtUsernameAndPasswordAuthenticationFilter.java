@@ -1,12 +1,15 @@
 package com.megakruk.springsecuritycourse.jwt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Jwts;
+import com.google.common.net.HttpHeaders;
+import com.megakruk.springsecuritycourse.security.PasswordHashingOverloadedException;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import javax.servlet.FilterChain;
@@ -14,16 +17,13 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.security.Key;
-import java.time.LocalDate;
-import java.util.Date;
 
 @AllArgsConstructor
 public class JwtUsernameAndPasswordAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private final AuthenticationManager authenticationManager;
     private final JwtConfig jwtConfig;
-    private final Key key;
+    private final RefreshTokenService refreshTokenService;
 
     @Override
     public Authentication attemptAuthentication(
@@ -59,18 +59,33 @@ public class JwtUsernameAndPasswordAuthenticationFilter extends UsernamePassword
             FilterChain chain,
             Authentication authResult
     ) throws IOException, ServletException {
-        String token = Jwts.builder()
-                .setSubject(authResult.getName())
-                .claim("authorities", authResult.getAuthorities())
-                .setIssuedAt(new Date())
-                .setExpiration(java.sql.Date.valueOf(LocalDate.now()
-                        .plusDays(jwtConfig.getTokenExpirationAfterDays())))
-                .signWith(key)
-                .compact();
+        TokenPair tokenPair = refreshTokenService.issueTokens(authResult.getName(), authResult.getAuthorities());
 
         response.addHeader(
                 jwtConfig.getAuthorizationHeader(),
-                jwtConfig.getTokenPrefix() + token
+                jwtConfig.getTokenPrefix() + tokenPair.getAccessToken()
         );
+        response.addHeader(
+                jwtConfig.getRefreshTokenHeader(),
+                tokenPair.getRefreshToken()
+        );
+    }
+
+    @Override
+    protected void unsuccessfulAuthentication(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            AuthenticationException failed
+    ) throws IOException, ServletException {
+        if (failed instanceof PasswordHashingOverloadedException) {
+            SecurityContextHolder.clearContext();
+            response.setHeader(
+                    HttpHeaders.RETRY_AFTER,
+                    String.valueOf(((PasswordHashingOverloadedException) failed).getRetryAfterSeconds())
+            );
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), failed.getMessage());
+            return;
+        }
+        super.unsuccessfulAuthentication(request, response, failed);
     }
 }
@@ -0,0 +1,50 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Table(name = "refresh_token_family")
+@Entity(name = "RefreshTokenFamily")
+public class RefreshTokenFamily {
+
+    @Id
+    @Column(
+            name = "id",
+            updatable = false,
+            length = 36
+    )
+    private String id;
+
+    @Column(
+            name = "username",
+            nullable = false,
+            updatable = false
+    )
+    private String username;
+
+    @Column(
+            name = "current_token_id",
+            nullable = false,
+            length = 36
+    )
+    private String currentTokenId;
+
+    @Column(
+            name = "expires_at",
+            nullable = false,
+            updatable = false
+    )
+    private Instant expiresAt;
+}
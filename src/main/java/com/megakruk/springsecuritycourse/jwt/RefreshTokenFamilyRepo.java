@@ -0,0 +1,27 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenFamilyRepo extends JpaRepository<RefreshTokenFamily, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM RefreshTokenFamily f WHERE f.id = ?1")
+    Optional<RefreshTokenFamily> findFamilyForUpdate(String id);
+
+    @Modifying
+    @Query("DELETE FROM RefreshTokenFamily f WHERE f.id = ?1")
+    int deleteFamily(String id);
+
+    @Modifying
+    @Query("DELETE FROM RefreshTokenFamily f WHERE f.expiresAt < ?1")
+    int deleteExpiredFamilies(Instant now);
+}
@@ -0,0 +1,105 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.megakruk.springsecuritycourse.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Every login starts a refresh token family. Only the family's latest refresh token is
+ * accepted; presenting an older one means it was stolen or replayed, so the whole family
+ * is revoked and the user has to log in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private final JwtConfig jwtConfig;
+    private final JwtTokenService jwtTokenService;
+    private final RefreshTokenFamilyRepo refreshTokenFamilyRepo;
+
+    @Autowired
+    public RefreshTokenService(
+            JwtConfig jwtConfig,
+            JwtTokenService jwtTokenService,
+            RefreshTokenFamilyRepo refreshTokenFamilyRepo
+    ) {
+        this.jwtConfig = jwtConfig;
+        this.jwtTokenService = jwtTokenService;
+        this.refreshTokenFamilyRepo = refreshTokenFamilyRepo;
+    }
+
+    @Transactional
+    public TokenPair issueTokens(String username, Collection<? extends GrantedAuthority> authorities) {
+        RefreshTokenFamily family = new RefreshTokenFamily(
+                UUID.randomUUID().toString(),
+                username,
+                UUID.randomUUID().toString(),
+                Instant.now().plus(Duration.ofDays(jwtConfig.getRefreshTokenExpirationAfterDays()))
+        );
+        refreshTokenFamilyRepo.save(family);
+        return createTokens(family, authorities);
+    }
+
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public TokenPair refreshTokens(String refreshToken) {
+        Claims claims = parseRefreshToken(refreshToken);
+
+        RefreshTokenFamily family = refreshTokenFamilyRepo
+                .findFamilyForUpdate(jwtTokenService.getFamilyId(claims))
+                .orElseThrow(() -> new InvalidTokenException("Refresh token has been revoked"));
+
+        if (!family.getCurrentTokenId().equals(claims.getId())) {
+            refreshTokenFamilyRepo.delete(family);
+            throw new InvalidTokenException("Refresh token was already used, please log in again");
+        }
+
+        family.setCurrentTokenId(UUID.randomUUID().toString());
+        return createTokens(family, jwtTokenService.getAuthorities(claims));
+    }
+
+    @Transactional
+    public void revokeFamily(String familyId) {
+        refreshTokenFamilyRepo.deleteFamily(familyId);
+    }
+
+    @Scheduled(fixedDelayString = "${application.jwt.refreshTokenPruneIntervalMillis:3600000}")
+    @Transactional
+    public void pruneExpiredFamilies() {
+        refreshTokenFamilyRepo.deleteExpiredFamilies(Instant.now());
+    }
+
+    private TokenPair createTokens(RefreshTokenFamily family, Collection<? extends GrantedAuthority> authorities) {
+        return new TokenPair(
+                jwtTokenService.createAccessToken(family.getUsername(), authorities, family.getId()),
+                jwtTokenService.createRefreshToken(
+                        family.getUsername(),
+                        authorities,
+                        family.getId(),
+                        family.getCurrentTokenId(),
+                        Date.from(family.getExpiresAt())
+                )
+        );
+    }
+
+    private Claims parseRefreshToken(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtTokenService.parseClaims(refreshToken);
+        } catch (JwtException e) {
+            throw new InvalidTokenException("Refresh token cannot be trusted");
+        }
+        if (!jwtTokenService.isRefreshToken(claims))
+            throw new InvalidTokenException("Not a refresh token");
+        return claims;
+    }
+}
@@ -0,0 +1,69 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids, checked on every request. A Bloom filter answers the common
+ * "not revoked" case without touching the exact set; entries are pruned once the
+ * revoked token would have expired anyway.
+ */
+@Component
+public class RevokedTokenRegistry {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final RevokedTokenStore revokedTokenStore;
+    private final int expectedRevocations;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private volatile BloomFilter<CharSequence> revokedTokenFilter;
+
+    @Autowired
+    public RevokedTokenRegistry(RevokedTokenStore revokedTokenStore, JwtConfig jwtConfig) {
+        this.revokedTokenStore = revokedTokenStore;
+        this.expectedRevocations = jwtConfig.getExpectedRevocations();
+        this.revokedTokens.putAll(revokedTokenStore.loadRevokedTokens());
+        prune();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null
+                && revokedTokenFilter.mightContain(tokenId)
+                && revokedTokens.containsKey(tokenId);
+    }
+
+    public synchronized void revoke(String tokenId, Date expiration) {
+        long expiresAt = expiration.getTime();
+        if (expiresAt <= System.currentTimeMillis())
+            return;
+        if (revokedTokens.putIfAbsent(tokenId, expiresAt) != null)
+            return;
+        revokedTokenFilter.put(tokenId);
+        revokedTokenStore.addRevokedToken(tokenId, expiresAt);
+    }
+
+    @Scheduled(fixedDelayString = "${application.jwt.revocationPruneIntervalMillis:60000}")
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+        boolean pruned = revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+
+        BloomFilter<CharSequence> filter = BloomFilter.create(
+                Funnels.unencodedCharsFunnel(),
+                Math.max(expectedRevocations, revokedTokens.size() * 2),
+                FALSE_POSITIVE_PROBABILITY
+        );
+        revokedTokens.keySet().forEach(filter::put);
+        revokedTokenFilter = filter;
+
+        if (pruned)
+            revokedTokenStore.replaceRevokedTokens(new HashMap<>(revokedTokens));
+    }
+}
@@ -0,0 +1,12 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import java.util.Map;
+
+public interface RevokedTokenStore {
+
+    Map<String, Long> loadRevokedTokens();
+
+    void addRevokedToken(String tokenId, long expiresAt);
+
+    void replaceRevokedTokens(Map<String, Long> revokedTokens);
+}
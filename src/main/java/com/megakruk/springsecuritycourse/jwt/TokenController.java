@@ -0,0 +1,90 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.google.common.base.Strings;
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+@RestController
+@RequestMapping("auth")
+public class TokenController {
+
+    private final JwtConfig jwtConfig;
+    private final JwtTokenService jwtTokenService;
+    private final JwtTokenCache jwtTokenCache;
+    private final RevokedTokenRegistry revokedTokenRegistry;
+    private final RefreshTokenService refreshTokenService;
+
+    @Autowired
+    public TokenController(
+            JwtConfig jwtConfig,
+            JwtTokenService jwtTokenService,
+            JwtTokenCache jwtTokenCache,
+            RevokedTokenRegistry revokedTokenRegistry,
+            RefreshTokenService refreshTokenService
+    ) {
+        this.jwtConfig = jwtConfig;
+        this.jwtTokenService = jwtTokenService;
+        this.jwtTokenCache = jwtTokenCache;
+        this.revokedTokenRegistry = revokedTokenRegistry;
+        this.refreshTokenService = refreshTokenService;
+    }
+
+    @PostMapping("refresh")
+    public ResponseEntity<?> refresh(HttpServletRequest request) {
+        String refreshToken = request.getHeader(jwtConfig.getRefreshTokenHeader());
+        if (Strings.isNullOrEmpty(refreshToken))
+            throw new InvalidTokenException("No refresh token");
+
+        TokenPair tokenPair = refreshTokenService.refreshTokens(refreshToken);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(jwtConfig.getAuthorizationHeader(), jwtConfig.getTokenPrefix() + tokenPair.getAccessToken());
+        headers.add(jwtConfig.getRefreshTokenHeader(), tokenPair.getRefreshToken());
+        return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping("logout")
+    public ResponseEntity<?> logout(HttpServletRequest request) {
+        String token = jwtTokenService.resolveToken(request)
+                .orElseThrow(() -> new BadRequestException("No token to revoke"));
+        Claims claims;
+        try {
+            claims = jwtTokenService.parseClaims(token);
+        } catch (JwtException e) {
+            throw new InvalidTokenException("Token cannot be trusted");
+        }
+        if (claims.getId() == null)
+            throw new BadRequestException("Token has no id and cannot be revoked");
+
+        revokedTokenRegistry.revoke(claims.getId(), claims.getExpiration());
+        jwtTokenCache.invalidate(token);
+
+        String familyId = jwtTokenService.getFamilyId(claims);
+        if (familyId != null)
+            refreshTokenService.revokeFamily(familyId);
+
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping("revoke/{tokenId}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> revoke(@PathVariable("tokenId") String tokenId) {
+        Date expiration = Date.from(Instant.now()
+                .plus(Duration.ofMinutes(jwtConfig.getAccessTokenExpirationAfterMinutes())));
+        revokedTokenRegistry.revoke(tokenId, expiration);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
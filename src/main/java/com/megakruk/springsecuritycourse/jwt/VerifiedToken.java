@@ -0,0 +1,39 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import lombok.Getter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The verified parts of a token. It is shared by concurrent requests, so each request
+ * gets its own Authentication from {@link #newAuthentication()}.
+ */
+@Getter
+public class VerifiedToken {
+
+    private final String username;
+    private final List<GrantedAuthority> authorities;
+    private final String tokenId;
+    private final Date expiration;
+
+    public VerifiedToken(
+            String username,
+            Collection<? extends GrantedAuthority> authorities,
+            String tokenId,
+            Date expiration
+    ) {
+        this.username = username;
+        this.authorities = List.copyOf(authorities);
+        this.tokenId = tokenId;
+        this.expiration = expiration;
+    }
+
+    public Authentication newAuthentication() {
+        return new UsernamePasswordAuthenticationToken(username, null, authorities);
+    }
+}
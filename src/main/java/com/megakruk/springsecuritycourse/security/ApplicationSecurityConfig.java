@@ -1,46 +1,59 @@
 package com.megakruk.springsecuritycourse.security;
 
+import com.megakruk.springsecuritycourse.auth.ApplicationUserCache;
 import com.megakruk.springsecuritycourse.auth.ApplicationUserService;
 import com.megakruk.springsecuritycourse.jwt.JwtConfig;
+import com.megakruk.springsecuritycourse.jwt.JwtTokenCache;
+import com.megakruk.springsecuritycourse.jwt.JwtTokenService;
 import com.megakruk.springsecuritycourse.jwt.JwtTokenVerifier;
 import com.megakruk.springsecuritycourse.jwt.JwtUsernameAndPasswordAuthenticationFilter;
+import com.megakruk.springsecuritycourse.jwt.RefreshTokenService;
+import com.megakruk.springsecuritycourse.jwt.RevokedTokenRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
-import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.security.Key;
-
 import static com.megakruk.springsecuritycourse.security.ApplicationUserRole.STUDENT;
 import static org.springframework.security.config.http.SessionCreationPolicy.*;
 
 @Configuration
 @EnableWebSecurity
-@EnableGlobalMethodSecurity(prePostEnabled = true)
 public class ApplicationSecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final PasswordEncoder passwordEncoder;
     private final ApplicationUserService applicationUserService;
-    private final Key key;
+    private final ApplicationUserCache applicationUserCache;
     private final JwtConfig jwtConfig;
+    private final JwtTokenService jwtTokenService;
+    private final JwtTokenCache jwtTokenCache;
+    private final RevokedTokenRegistry revokedTokenRegistry;
+    private final RefreshTokenService refreshTokenService;
 
     @Autowired
     public ApplicationSecurityConfig(
             PasswordEncoder passwordEncoder,
             ApplicationUserService applicationUserService,
-            Key key,
-            JwtConfig jwtConfig
+            ApplicationUserCache applicationUserCache,
+            JwtConfig jwtConfig,
+            JwtTokenService jwtTokenService,
+            JwtTokenCache jwtTokenCache,
+            RevokedTokenRegistry revokedTokenRegistry,
+            RefreshTokenService refreshTokenService
     ) {
         this.passwordEncoder = passwordEncoder;
         this.applicationUserService = applicationUserService;
-        this.key = key;
+        this.applicationUserCache = applicationUserCache;
         this.jwtConfig = jwtConfig;
+        this.jwtTokenService = jwtTokenService;
+        this.jwtTokenCache = jwtTokenCache;
+        this.revokedTokenRegistry = revokedTokenRegistry;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @Override
@@ -49,10 +62,11 @@ public class ApplicationSecurityConfig extends WebSecurityConfigurerAdapter {
                 .csrf().disable()
                 .sessionManagement().sessionCreationPolicy(STATELESS)
                 .and()
-                .addFilter(new JwtUsernameAndPasswordAuthenticationFilter(authenticationManager(), jwtConfig, key))
-                .addFilterAfter(new JwtTokenVerifier(key, jwtConfig), JwtUsernameAndPasswordAuthenticationFilter.class)
+                .addFilter(new JwtUsernameAndPasswordAuthenticationFilter(authenticationManager(), jwtConfig, refreshTokenService))
+                .addFilterAfter(new JwtTokenVerifier(jwtTokenService, jwtTokenCache, revokedTokenRegistry), JwtUsernameAndPasswordAuthenticationFilter.class)
                 .authorizeRequests()
                 .antMatchers("/", "index", "/css/*", "/js/*").permitAll()
+                .antMatchers("/auth/refresh").permitAll()
                 .antMatchers("/api/**").hasRole(STUDENT.name())
                 .anyRequest()
                 .authenticated();
@@ -68,6 +82,8 @@ public class ApplicationSecurityConfig extends WebSecurityConfigurerAdapter {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setPasswordEncoder(passwordEncoder);
         provider.setUserDetailsService(applicationUserService);
+        provider.setUserCache(applicationUserCache);
+        provider.setUserDetailsPasswordService(applicationUserService);
         return provider;
     }
 }
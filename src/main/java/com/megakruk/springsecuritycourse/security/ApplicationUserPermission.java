@@ -12,4 +12,8 @@ public enum ApplicationUserPermission {
     COURSE_WRITE("course:write");
 
     private final String permission;
+
+    public int getMask() {
+        return 1 << ordinal();
+    }
 }
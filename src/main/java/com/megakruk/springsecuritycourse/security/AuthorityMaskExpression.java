@@ -0,0 +1,143 @@
+package com.megakruk.springsecuritycourse.security;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.SecurityExpressionOperations;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Answers an authority check with one AND against the caller's authority mask.
+ * Anything that is not a security expression evaluation is left to the SpEL fallback.
+ */
+public class AuthorityMaskExpression implements Expression {
+
+    private final long requiredMask;
+    private final Expression fallback;
+
+    public AuthorityMaskExpression(long requiredMask, Expression fallback) {
+        this.requiredMask = requiredMask;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getExpressionString() {
+        return fallback.getExpressionString();
+    }
+
+    @Override
+    public Object getValue() {
+        return fallback.getValue();
+    }
+
+    @Override
+    public <T> T getValue(Class<T> desiredResultType) {
+        return fallback.getValue(desiredResultType);
+    }
+
+    @Override
+    public Object getValue(Object rootObject) {
+        return getValue(null, rootObject);
+    }
+
+    @Override
+    public <T> T getValue(Object rootObject, Class<T> desiredResultType) {
+        return getValue(null, rootObject, desiredResultType);
+    }
+
+    @Override
+    public Object getValue(EvaluationContext context) {
+        return getValue(context, context.getRootObject().getValue());
+    }
+
+    @Override
+    public Object getValue(EvaluationContext context, Object rootObject) {
+        if (!(rootObject instanceof SecurityExpressionOperations))
+            return context != null ? fallback.getValue(context, rootObject) : fallback.getValue(rootObject);
+        long mask = AuthorityMaskExpressionParser.maskOf(((SecurityExpressionOperations) rootObject).getAuthentication());
+        return (mask & requiredMask) != 0;
+    }
+
+    @Override
+    public <T> T getValue(EvaluationContext context, Class<T> desiredResultType) {
+        return getValue(context, context.getRootObject().getValue(), desiredResultType);
+    }
+
+    @Override
+    public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType) {
+        Object value = getValue(context, rootObject);
+        if (desiredResultType == null)
+            return (T) value;
+        return (T) ClassUtils.resolvePrimitiveIfNecessary(desiredResultType).cast(value);
+    }
+
+    @Override
+    public Class<?> getValueType() {
+        return Boolean.class;
+    }
+
+    @Override
+    public Class<?> getValueType(Object rootObject) {
+        return Boolean.class;
+    }
+
+    @Override
+    public Class<?> getValueType(EvaluationContext context) {
+        return Boolean.class;
+    }
+
+    @Override
+    public Class<?> getValueType(EvaluationContext context, Object rootObject) {
+        return Boolean.class;
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor() {
+        return TypeDescriptor.valueOf(Boolean.class);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(Object rootObject) {
+        return TypeDescriptor.valueOf(Boolean.class);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(EvaluationContext context) {
+        return TypeDescriptor.valueOf(Boolean.class);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(EvaluationContext context, Object rootObject) {
+        return TypeDescriptor.valueOf(Boolean.class);
+    }
+
+    @Override
+    public boolean isWritable(Object rootObject) {
+        return false;
+    }
+
+    @Override
+    public boolean isWritable(EvaluationContext context) {
+        return false;
+    }
+
+    @Override
+    public boolean isWritable(EvaluationContext context, Object rootObject) {
+        return false;
+    }
+
+    @Override
+    public void setValue(Object rootObject, Object value) {
+        fallback.setValue(rootObject, value);
+    }
+
+    @Override
+    public void setValue(EvaluationContext context, Object value) {
+        fallback.setValue(context, value);
+    }
+
+    @Override
+    public void setValue(EvaluationContext context, Object rootObject, Object value) {
+        fallback.setValue(context, rootObject, value);
+    }
+}
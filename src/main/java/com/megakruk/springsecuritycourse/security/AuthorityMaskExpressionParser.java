@@ -0,0 +1,84 @@
+package com.megakruk.springsecuritycourse.security;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.ParserContext;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles hasRole/hasAnyRole/hasAuthority/hasAnyAuthority over the known roles and
+ * permissions into a bitmask test. Every other expression is parsed by the delegate.
+ */
+public class AuthorityMaskExpressionParser implements ExpressionParser {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final Pattern AUTHORITY_CHECK = Pattern.compile(
+            "\\s*(hasRole|hasAnyRole|hasAuthority|hasAnyAuthority)\\(\\s*('[^']*'(?:\\s*,\\s*'[^']*')*)\\s*\\)\\s*");
+    private static final Pattern QUOTED = Pattern.compile("'([^']*)'");
+    private static final Map<String, Long> AUTHORITY_BITS = authorityBits();
+
+    private final ExpressionParser delegate;
+
+    public AuthorityMaskExpressionParser(ExpressionParser delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Expression parseExpression(String expressionString) throws ParseException {
+        return compile(expressionString, delegate.parseExpression(expressionString));
+    }
+
+    @Override
+    public Expression parseExpression(String expressionString, ParserContext context) throws ParseException {
+        return compile(expressionString, delegate.parseExpression(expressionString, context));
+    }
+
+    static long maskOf(Authentication authentication) {
+        if (authentication == null)
+            return 0L;
+        long mask = 0L;
+        for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
+            Long bit = AUTHORITY_BITS.get(grantedAuthority.getAuthority());
+            if (bit != null)
+                mask |= bit;
+        }
+        return mask;
+    }
+
+    private Expression compile(String expressionString, Expression fallback) {
+        Matcher check = AUTHORITY_CHECK.matcher(expressionString);
+        if (!check.matches())
+            return fallback;
+
+        boolean roleCheck = check.group(1).endsWith("Role");
+        long requiredMask = 0L;
+        Matcher quoted = QUOTED.matcher(check.group(2));
+        while (quoted.find()) {
+            String authority = quoted.group(1);
+            if (roleCheck && !authority.startsWith(ROLE_PREFIX))
+                authority = ROLE_PREFIX + authority;
+            Long bit = AUTHORITY_BITS.get(authority);
+            if (bit == null)
+                return fallback;
+            requiredMask |= bit;
+        }
+        return new AuthorityMaskExpression(requiredMask, fallback);
+    }
+
+    private static Map<String, Long> authorityBits() {
+        ImmutableMap.Builder<String, Long> bits = ImmutableMap.builder();
+        int bit = 0;
+        for (ApplicationUserPermission permission : ApplicationUserPermission.values())
+            bits.put(permission.getPermission(), 1L << bit++);
+        for (ApplicationUserRole role : ApplicationUserRole.values())
+            bits.put(ROLE_PREFIX + role.name(), 1L << bit++);
+        return bits.build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.megakruk.springsecuritycourse.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * Picks the highest strength in [minimumStrength, maximumStrength] whose hash still fits
+     * the latency budget on this machine. Never goes below minimumStrength.
+     */
+    public static int calibrate(long latencyBudgetMillis, int minimumStrength, int maximumStrength) {
+        new BCryptPasswordEncoder(4).encode(CALIBRATION_PASSWORD);
+
+        int strength = minimumStrength;
+        for (int candidate = minimumStrength; candidate <= maximumStrength; candidate++) {
+            long millis = Math.min(measureMillis(candidate), measureMillis(candidate));
+            log.info("BCrypt strength {} takes {} ms", candidate, millis);
+            if (millis > latencyBudgetMillis)
+                break;
+            strength = candidate;
+        }
+        log.info("Using BCrypt strength {} for a {} ms budget", strength, latencyBudgetMillis);
+        return strength;
+    }
+
+    private static long measureMillis(int strength) {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        passwordEncoder.encode(CALIBRATION_PASSWORD);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
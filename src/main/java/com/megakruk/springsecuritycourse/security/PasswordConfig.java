@@ -1,15 +1,40 @@
 package com.megakruk.springsecuritycourse.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Map;
+
 @Configuration
 public class PasswordConfig {
 
+    private static final String ENCODING_ID = "bcrypt";
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(10);
+    public PasswordEncoder passwordEncoder(PasswordHashingConfig passwordHashingConfig, MeterRegistry meterRegistry) {
+        int strength = passwordHashingConfig.getStrength() != null
+                ? passwordHashingConfig.getStrength()
+                : BCryptStrengthCalibrator.calibrate(
+                        passwordHashingConfig.getLatencyBudgetMillis(),
+                        passwordHashingConfig.getMinimumStrength(),
+                        passwordHashingConfig.getMaximumStrength()
+                );
+
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(
+                ENCODING_ID,
+                Map.of(ENCODING_ID, new BCryptPasswordEncoder(strength))
+        );
+        // Hashes stored before the {bcrypt} prefix was introduced; upgraded on the next login
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+
+        return new BoundedPasswordEncoder(
+                delegatingPasswordEncoder,
+                passwordHashingConfig,
+                meterRegistry
+        );
     }
 }
@@ -0,0 +1,23 @@
+package com.megakruk.springsecuritycourse.security;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "application.password")
+@Getter
+@Setter
+@NoArgsConstructor
+public class PasswordHashingConfig {
+
+    private Integer hashingThreads = Runtime.getRuntime().availableProcessors();
+    private Integer hashingQueueCapacity = 64;
+    private Integer retryAfterSeconds = 1;
+    private Integer strength;
+    private Integer minimumStrength = 10;
+    private Integer maximumStrength = 14;
+    private Long latencyBudgetMillis = 50L;
+}
@@ -0,0 +1,15 @@
+package com.megakruk.springsecuritycourse.security;
+
+import lombok.Getter;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+@Getter
+public class PasswordHashingOverloadedException extends AuthenticationServiceException {
+
+    private final int retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
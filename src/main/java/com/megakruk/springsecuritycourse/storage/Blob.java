@@ -0,0 +1,12 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Blob {
+
+    private final String sha256;
+    private final long size;
+}
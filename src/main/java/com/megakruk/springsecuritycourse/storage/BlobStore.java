@@ -0,0 +1,154 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import com.google.common.io.BaseEncoding;
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * Content-addressed blobs under blobs/ab/abcdef..., named by the SHA-256 of their data.
+ * Data is hashed while it is copied to a temporary file, which is then moved into place,
+ * so a blob is either complete or absent and identical data is kept once.
+ */
+@Component
+public class BlobStore {
+
+    private static final Pattern SHA_256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path blobDirectory;
+    private final Path incomingDirectory;
+    private final int bufferSize;
+
+    @Autowired
+    public BlobStore(StorageConfig storageConfig) {
+        Path root = Paths.get(storageConfig.getDirectory()).toAbsolutePath().normalize();
+        this.blobDirectory = root.resolve("blobs");
+        this.incomingDirectory = root.resolve("incoming");
+        this.bufferSize = storageConfig.getBufferSize();
+    }
+
+    /**
+     * Stores the data unless a blob with the same hash exists. When an expected hash is
+     * given and does not match, nothing is stored.
+     */
+    public Blob put(InputStream data, String expectedSha256) {
+        return commit(write(data, expectedSha256));
+    }
+
+    /**
+     * Hashes the data into a temporary file, which {@link #commit} moves into place.
+     */
+    IncomingBlob write(InputStream data, String expectedSha256) {
+        Path incoming = null;
+        try {
+            Files.createDirectories(incomingDirectory);
+            incoming = Files.createTempFile(incomingDirectory, "blob", ".tmp");
+
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (InputStream in = data; OutputStream out = Files.newOutputStream(incoming)) {
+                byte[] buffer = new byte[bufferSize];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+
+            String sha256 = BaseEncoding.base16().lowerCase().encode(digest.digest());
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256))
+                throw new BadRequestException("Checksum mismatch: expected " + expectedSha256 + " but was " + sha256);
+            IncomingBlob incomingBlob = new IncomingBlob(incoming, new Blob(sha256, size));
+            incoming = null;
+            return incomingBlob;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(incoming);
+        }
+    }
+
+    Blob commit(IncomingBlob incoming) {
+        Blob blob = incoming.getBlob();
+        try {
+            Path path = path(blob.getSha256());
+            if (!Files.exists(path)) {
+                Files.createDirectories(path.getParent());
+                Files.move(incoming.getPath(), path, ATOMIC_MOVE);
+            }
+            return blob;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(incoming.getPath());
+        }
+    }
+
+    /**
+     * Deletes the blob together with everything derived from it.
+     */
+    public void delete(String sha256) {
+        Path blob = path(sha256);
+        if (!Files.isDirectory(blob.getParent()))
+            return;
+        String prefix = sha256 + "-";
+        try (DirectoryStream<Path> derivatives = Files.newDirectoryStream(blob.getParent(),
+                path -> path.getFileName().toString().startsWith(prefix))) {
+            for (Path derivative : derivatives)
+                Files.deleteIfExists(derivative);
+            Files.deleteIfExists(blob);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path path(String sha256) {
+        if (!SHA_256.matcher(sha256).matches())
+            throw new IllegalArgumentException("Not a SHA-256 hash: " + sha256);
+        return blobDirectory.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    /**
+     * Where data derived from a blob, such as a thumbnail, is kept next to it.
+     */
+    public Path derivativePath(String sha256, String suffix) {
+        Path blob = path(sha256);
+        return blob.resolveSibling(blob.getFileName() + "-" + suffix);
+    }
+
+    public boolean exists(String sha256) {
+        return Files.isRegularFile(path(sha256));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null)
+            return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Left behind in incoming/, where it does no harm
+        }
+    }
+}
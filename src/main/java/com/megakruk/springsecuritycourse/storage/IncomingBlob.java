@@ -0,0 +1,17 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Data that has been hashed but not yet moved into the blob store.
+ */
+@Getter
+@AllArgsConstructor
+class IncomingBlob {
+
+    private final Path path;
+    private final Blob blob;
+}
@@ -0,0 +1,18 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "application.storage")
+@Getter
+@Setter
+@NoArgsConstructor
+public class StorageConfig {
+
+    private String directory = "upload";
+    private Integer bufferSize = 64 * 1024;
+}
@@ -0,0 +1,19 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * A file as a student sees it: its name and the blob it points to.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredFile {
+
+    private final String name;
+    private final String sha256;
+    private final long size;
+    private final Instant lastModified;
+}
@@ -0,0 +1,323 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Maps each student's file names to blobs. A student's index is one small file under
+ * index/, with a "sha256 size lastModifiedMillis name" line per file, replaced
+ * atomically on every change.
+ * <p>
+ * Reads are served from memory. The index files are read in parallel when the store
+ * starts, and once the application is ready a watcher reloads any index file changed
+ * outside the application. Blobs no student refers to any more after an upload or a
+ * delete are deleted.
+ * <p>
+ * Files from the old layout, stored as {directory}/{studentId}/{name}, are moved into
+ * the blob store when the store starts.
+ */
+@Component
+public class StudentFileStore implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentFileStore.class);
+    private static final Pattern STUDENT_ID = Pattern.compile("\\d+");
+    private static final int MAX_FILE_NAME_LENGTH = 255;
+
+    private final BlobStore blobStore;
+    private final Path root;
+    private final Path indexDirectory;
+    private final Map<Long, SortedMap<String, StoredFile>> filesByStudent = new ConcurrentHashMap<>();
+    private final Map<String, Integer> references = new HashMap<>();
+    private WatchService watchService;
+
+    @Autowired
+    public StudentFileStore(StorageConfig storageConfig, BlobStore blobStore) {
+        this.blobStore = blobStore;
+        this.root = Paths.get(storageConfig.getDirectory()).toAbsolutePath().normalize();
+        this.indexDirectory = root.resolve("index");
+        rebuild();
+        adoptLegacyFiles();
+    }
+
+    public StoredFile store(Long studentId, String fileName, InputStream data, String expectedSha256) {
+        checkFileName(fileName);
+        IncomingBlob incoming = blobStore.write(data, expectedSha256);
+        // Committed under the lock, so the blob cannot be collected before it is linked
+        synchronized (this) {
+            Blob blob = blobStore.commit(incoming);
+            StoredFile storedFile = new StoredFile(
+                    fileName,
+                    blob.getSha256(),
+                    blob.getSize(),
+                    Instant.ofEpochMilli(System.currentTimeMillis())
+            );
+            link(studentId, storedFile);
+            return storedFile;
+        }
+    }
+
+    public Optional<StoredFile> find(Long studentId, String fileName) {
+        return Optional.ofNullable(files(studentId).get(fileName));
+    }
+
+    /**
+     * The student's files ordered by name.
+     */
+    public List<StoredFile> list(Long studentId) {
+        return new ArrayList<>(files(studentId).values());
+    }
+
+    public synchronized boolean delete(Long studentId, String fileName) {
+        SortedMap<String, StoredFile> files = new TreeMap<>(files(studentId));
+        if (files.remove(fileName) == null)
+            return false;
+        writeIndex(studentId, files);
+        replace(studentId, files, true);
+        return true;
+    }
+
+    public Path path(StoredFile storedFile) {
+        return blobStore.path(storedFile.getSha256());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void watch() throws IOException {
+        if (watchService != null)
+            return;
+        Files.createDirectories(indexDirectory);
+        watchService = indexDirectory.getFileSystem().newWatchService();
+        indexDirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        Thread watcher = new Thread(() -> watchIndex(watchService), "student-file-index-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        if (watchService != null)
+            watchService.close();
+    }
+
+    private SortedMap<String, StoredFile> files(Long studentId) {
+        return filesByStudent.getOrDefault(studentId, Collections.emptySortedMap());
+    }
+
+    private synchronized void link(Long studentId, StoredFile storedFile) {
+        SortedMap<String, StoredFile> files = new TreeMap<>(files(studentId));
+        files.put(storedFile.getName(), storedFile);
+        writeIndex(studentId, files);
+        replace(studentId, files, true);
+    }
+
+    /**
+     * Swaps in the student's files and, when asked to, deletes the blobs that lost their
+     * last reference. Changes made outside the application never delete blobs, since a
+     * half-written index file would otherwise take data with it.
+     */
+    private synchronized void replace(Long studentId, SortedMap<String, StoredFile> files, boolean collect) {
+        SortedMap<String, StoredFile> previous = files.isEmpty()
+                ? filesByStudent.remove(studentId)
+                : filesByStudent.put(studentId, Collections.unmodifiableSortedMap(files));
+
+        files.values().forEach(file -> references.merge(file.getSha256(), 1, Integer::sum));
+        if (previous == null)
+            return;
+        for (StoredFile file : previous.values()) {
+            Integer remaining = references.merge(file.getSha256(), -1, Integer::sum);
+            if (remaining != null && remaining <= 0) {
+                references.remove(file.getSha256());
+                if (collect)
+                    blobStore.delete(file.getSha256());
+            }
+        }
+    }
+
+    /**
+     * Reads every index file, in parallel since there is one per student.
+     */
+    private synchronized void rebuild() {
+        if (!Files.isDirectory(indexDirectory))
+            return;
+        Map<Long, SortedMap<String, StoredFile>> loaded;
+        try (Stream<Path> indexFiles = Files.list(indexDirectory)) {
+            loaded = indexFiles.parallel()
+                    .filter(path -> studentId(path) != null)
+                    .collect(Collectors.toConcurrentMap(StudentFileStore::studentId, StudentFileStore::readIndex));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        filesByStudent.clear();
+        references.clear();
+        loaded.forEach((studentId, files) -> {
+            if (!files.isEmpty()) {
+                filesByStudent.put(studentId, Collections.unmodifiableSortedMap(files));
+                files.values().forEach(file -> references.merge(file.getSha256(), 1, Integer::sum));
+            }
+        });
+    }
+
+    private synchronized void reload(Long studentId) {
+        replace(studentId, readIndex(indexFile(studentId)), false);
+    }
+
+    private void watchIndex(WatchService watchService) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    if (event.kind() == OVERFLOW) {
+                        rebuild();
+                        continue;
+                    }
+                    Long studentId = studentId((Path) event.context());
+                    if (studentId != null)
+                        reload(studentId);
+                } catch (RuntimeException e) {
+                    log.warn("Could not reload the file index after {}", event.context(), e);
+                }
+            }
+            if (!key.reset())
+                return;
+        }
+    }
+
+    private static SortedMap<String, StoredFile> readIndex(Path index) {
+        SortedMap<String, StoredFile> files = new TreeMap<>();
+        if (!Files.exists(index))
+            return files;
+        try {
+            for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(" ", 4);
+                if (fields.length == 4)
+                    files.put(fields[3], new StoredFile(
+                            fields[3],
+                            fields[0],
+                            Long.parseLong(fields[1]),
+                            Instant.ofEpochMilli(Long.parseLong(fields[2]))
+                    ));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    private void writeIndex(Long studentId, Map<String, StoredFile> files) {
+        Path index = indexFile(studentId);
+        Path tempFile = index.resolveSibling(index.getFileName() + ".tmp");
+        List<String> lines = files.values().stream()
+                .map(file -> file.getSha256() + " " + file.getSize() + " "
+                        + file.getLastModified().toEpochMilli() + " " + file.getName())
+                .collect(Collectors.toList());
+        try {
+            Files.createDirectories(indexDirectory);
+            if (lines.isEmpty()) {
+                Files.deleteIfExists(index);
+                return;
+            }
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            Files.move(tempFile, index, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path indexFile(Long studentId) {
+        return indexDirectory.resolve(String.valueOf(studentId));
+    }
+
+    private static Long studentId(Path path) {
+        String name = path.getFileName().toString();
+        return STUDENT_ID.matcher(name).matches() ? Long.valueOf(name) : null;
+    }
+
+    private void adoptLegacyFiles() {
+        if (!Files.isDirectory(root))
+            return;
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(root, path ->
+                Files.isDirectory(path) && studentId(path) != null)) {
+            for (Path directory : directories)
+                adoptLegacyFiles(studentId(directory), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void adoptLegacyFiles(Long studentId, Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (find(studentId, fileName).isEmpty()) {
+                    Blob blob = blobStore.put(Files.newInputStream(file), null);
+                    link(studentId, new StoredFile(
+                            fileName,
+                            blob.getSha256(),
+                            blob.getSize(),
+                            Instant.ofEpochMilli(Files.getLastModifiedTime(file).toMillis())
+                    ));
+                }
+                Files.delete(file);
+            }
+        }
+        try (DirectoryStream<Path> remaining = Files.newDirectoryStream(directory)) {
+            if (!remaining.iterator().hasNext())
+                Files.delete(directory);
+        }
+    }
+
+    private static void checkFileName(String fileName) {
+        if (fileName == null || fileName.isBlank())
+            throw new BadRequestException("File name is missing");
+        if (fileName.length() > MAX_FILE_NAME_LENGTH)
+            throw new BadRequestException("File name is longer than " + MAX_FILE_NAME_LENGTH + " characters");
+        if (fileName.equals(".") || fileName.equals("..") || fileName.chars().anyMatch(c ->
+                c == '/' || c == '\\' || Character.isISOControl(c)))
+            throw new BadRequestException("File name " + fileName + " is not allowed");
+    }
+}
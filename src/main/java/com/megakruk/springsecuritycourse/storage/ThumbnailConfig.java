@@ -0,0 +1,23 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "application.thumbnails")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ThumbnailConfig {
+
+    private List<Integer> sizes = List.of(64, 256);
+    private Integer threads = 2;
+    private Integer queueCapacity = 100;
+    private Integer maxAgeDays = 365;
+    private Long maxPixels = 50_000_000L;
+}
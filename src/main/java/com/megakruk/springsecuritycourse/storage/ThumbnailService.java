@@ -0,0 +1,236 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Scales uploaded images to the configured sizes on a fixed pool with a bounded queue,
+ * so uploads never wait for it. Thumbnails are JPEGs kept next to their blob and shared
+ * by every file with the same content. When the queue is full the work is dropped and
+ * redone the first time the thumbnail is requested. Images are only decoded after their
+ * header dimensions pass the pixel limit, and large ones are decoded subsampled. Blobs
+ * that cannot produce a thumbnail get a marker next to them and are never retried.
+ */
+@Component
+public class ThumbnailService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final String FORMAT = "jpeg";
+    private static final String FAILED = "thumbnails.failed";
+
+    private final BlobStore blobStore;
+    private final List<Integer> sizes;
+    private final int maxSize;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Counter generatedCounter;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public ThumbnailService(BlobStore blobStore, ThumbnailConfig thumbnailConfig, MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.sizes = List.copyOf(thumbnailConfig.getSizes());
+        this.maxSize = Collections.max(sizes);
+        this.maxPixels = thumbnailConfig.getMaxPixels();
+        this.executor = new ThreadPoolExecutor(
+                thumbnailConfig.getThreads(),
+                thumbnailConfig.getThreads(),
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(thumbnailConfig.getQueueCapacity()),
+                new CustomizableThreadFactory("thumbnails-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.generatedCounter = Counter.builder("thumbnails.generated")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("thumbnails.rejected")
+                .register(meterRegistry);
+        Gauge.builder("thumbnails.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    public boolean isSupported(StoredFile storedFile) {
+        String name = storedFile.getName();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && ImageIO.getImageReadersBySuffix(name.substring(dot + 1).toLowerCase(Locale.ROOT)).hasNext();
+    }
+
+    public boolean isConfiguredSize(int size) {
+        return sizes.contains(size);
+    }
+
+    public String contentType() {
+        return "image/" + FORMAT;
+    }
+
+    /**
+     * Queues the thumbnails of an image and returns right away.
+     */
+    public void generateAsync(StoredFile storedFile) {
+        if (!isSupported(storedFile))
+            return;
+        String sha256 = storedFile.getSha256();
+        if (!pending.add(sha256))
+            return;
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(sha256);
+                } catch (RuntimeException e) {
+                    log.warn("Could not generate thumbnails of blob {}", sha256, e);
+                } finally {
+                    pending.remove(sha256);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(sha256);
+            rejectedCounter.increment();
+        }
+    }
+
+    /**
+     * The thumbnail when it has been generated. A missing one is queued again, unless
+     * the image is known to be unusable.
+     */
+    public Optional<Path> find(StoredFile storedFile, int size) {
+        Path thumbnail = thumbnailPath(storedFile.getSha256(), size);
+        if (Files.exists(thumbnail))
+            return Optional.of(thumbnail);
+        if (!Files.exists(failedPath(storedFile.getSha256())))
+            generateAsync(storedFile);
+        return Optional.empty();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    void generate(String sha256) {
+        try {
+            BufferedImage image = read(sha256);
+            if (image == null) {
+                Files.write(failedPath(sha256), new byte[0]);
+                return;
+            }
+            for (int size : sizes) {
+                Path thumbnail = thumbnailPath(sha256, size);
+                if (!Files.exists(thumbnail))
+                    write(scale(image, size), thumbnail);
+            }
+            generatedCounter.increment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Null when no reader understands the blob, it has more pixels than allowed or it is
+     * corrupt. Every n-th pixel is decoded so the image is still at least twice the
+     * largest size.
+     */
+    private BufferedImage read(String sha256) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(blobStore.path(sha256).toFile())) {
+            Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Blob {} is {}x{} pixels, above the limit of {}", sha256, width, height, maxPixels);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (2 * maxSize));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException | RuntimeException e) {
+                // Decoders report broken input with either
+                log.warn("Blob {} is not a readable image", sha256, e);
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    Path thumbnailPath(String sha256, int size) {
+        return blobStore.derivativePath(sha256, size + "." + FORMAT);
+    }
+
+    Path failedPath(String sha256) {
+        return blobStore.derivativePath(sha256, FAILED);
+    }
+
+    /**
+     * Fits the image into a size x size box, keeping its aspect ratio and never enlarging it.
+     * JPEG has no alpha, so transparent areas become white.
+     */
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static void write(BufferedImage thumbnail, Path path) throws IOException {
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            if (!ImageIO.write(thumbnail, FORMAT, out))
+                throw new IOException("No " + FORMAT + " writer available");
+        }
+        Files.move(tempFile, path, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+}
@@ -1,9 +1,11 @@
 package com.megakruk.springsecuritycourse.student;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.Size;
@@ -11,23 +13,29 @@ import javax.validation.constraints.Size;
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
 @Table(
         name = "student",
         uniqueConstraints = {
                 @UniqueConstraint(name = "student_email_unique", columnNames = "email")
+        },
+        indexes = {
+                @Index(name = "student_last_name_id_idx", columnList = "last_name, id")
         }
 )
 @Entity(name = "Student")
 public class Student {
 
     @Id
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "student_sequence",
-            sequenceName = "student_sequence",
-            allocationSize = 1
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "student_sequence"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            }
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -50,7 +58,7 @@ public class Student {
     @Column(
             name = "last_name",
             nullable = false,
-            columnDefinition = "TEXT"
+            length = 50
     )
     @Size(min = 2, max = 50)
     private String lastName;
@@ -64,6 +72,22 @@ public class Student {
     @Size(min = 5, max = 50)
     private String email;
 
+    @Version
+    @Column(
+            name = "version",
+            nullable = false,
+            columnDefinition = "BIGINT DEFAULT 0"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public Student(Long id, String firstName, String lastName, String email) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+    }
+
     public Student(String firstName, String lastName, String email) {
         this.firstName = firstName;
         this.lastName = lastName;
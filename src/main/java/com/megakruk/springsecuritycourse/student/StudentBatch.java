@@ -0,0 +1,14 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class StudentBatch {
+
+    private final List<StudentDto> students;
+    private final List<Long> missingIds;
+}
@@ -0,0 +1,12 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StudentBulkError {
+
+    private final int index;
+    private final String message;
+}
@@ -0,0 +1,73 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.megakruk.springsecuritycourse.exception.UserNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Read-through cache of student views. Concurrent misses for one id wait for a
+ * single load. Writers evict after their transaction commits, so a reader cannot cache
+ * a row that is about to be rolled back.
+ */
+@Component
+public class StudentCache {
+
+    private final LoadingCache<Long, StudentDto> students;
+
+    @Autowired
+    public StudentCache(StudentRepo studentRepo, StudentConfig studentConfig, MeterRegistry meterRegistry) {
+        this.students = CacheBuilder.newBuilder()
+                .maximumSize(studentConfig.getCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(studentConfig.getCacheExpirationAfterSeconds()))
+                .recordStats()
+                .build(CacheLoader.from(id -> studentRepo.selectStudentDtoById(id)
+                        .orElseThrow(() -> new UserNotFoundException("Student with id " + id + " was not found"))));
+        GuavaCacheMetrics.monitor(meterRegistry, students, "students");
+    }
+
+    public StudentDto get(Long id) {
+        try {
+            return students.getUnchecked(id);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public StudentDto getIfPresent(Long id) {
+        return students.getIfPresent(id);
+    }
+
+    public Map<Long, StudentDto> getAllPresent(Collection<Long> ids) {
+        return students.getAllPresent(ids);
+    }
+
+    public void putAll(Collection<StudentDto> loadedStudents) {
+        for (StudentDto student : loadedStudents)
+            students.put(student.getId(), student);
+    }
+
+    public void evict(Long id) {
+        students.invalidate(id);
+    }
+
+    public void evictAfterCommit(Long id) {
+        AfterCommit.run(() -> students.invalidate(id));
+    }
+
+    public CacheStats stats() {
+        return students.stats();
+    }
+}
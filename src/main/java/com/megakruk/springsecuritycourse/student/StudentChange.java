@@ -0,0 +1,50 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Table(
+        name = "student_change",
+        indexes = {
+                @Index(name = "student_change_changed_at_idx", columnList = "changed_at")
+        }
+)
+@Entity(name = "StudentChange")
+public class StudentChange {
+
+    @Id
+    @Column(
+            name = "sequence_number",
+            updatable = false
+    )
+    private Long sequence;
+
+    @Column(
+            name = "student_id",
+            nullable = false,
+            updatable = false
+    )
+    private Long studentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(
+            name = "change_type",
+            nullable = false,
+            updatable = false
+    )
+    private StudentChangeType type;
+
+    @Column(
+            name = "changed_at",
+            nullable = false,
+            updatable = false
+    )
+    private Instant changedAt;
+}
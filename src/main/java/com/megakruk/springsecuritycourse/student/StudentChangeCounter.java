@@ -0,0 +1,42 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The last change sequence number handed out. Its single row is locked by every writing
+ * transaction from just before it commits until it has committed, which makes sequence
+ * numbers follow commit order.
+ */
+@NoArgsConstructor
+@Getter
+@Table(name = "student_change_counter")
+@Entity(name = "StudentChangeCounter")
+public class StudentChangeCounter {
+
+    static final Long ID = 1L;
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(
+            name = "last_sequence",
+            nullable = false
+    )
+    private Long lastSequence;
+
+    StudentChangeCounter(Long id, Long lastSequence) {
+        this.id = id;
+        this.lastSequence = lastSequence;
+    }
+
+    long next() {
+        return ++lastSequence;
+    }
+}
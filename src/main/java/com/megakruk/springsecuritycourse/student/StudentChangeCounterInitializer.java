@@ -0,0 +1,47 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+/**
+ * Creates the change counter row once, before the web server accepts requests, so
+ * writers only ever lock it. When several instances start on an empty database the
+ * losers of the insert race find the winner's row.
+ */
+@Component
+public class StudentChangeCounterInitializer implements SmartInitializingSingleton {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+
+    @Autowired
+    public StudentChangeCounterInitializer(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            transaction.executeWithoutResult(status -> {
+                if (!exists()) {
+                    entityManager.persist(new StudentChangeCounter(StudentChangeCounter.ID, 0L));
+                    entityManager.flush();
+                }
+            });
+        } catch (PersistenceException e) {
+            if (!Boolean.TRUE.equals(transaction.execute(status -> exists())))
+                throw e;
+        }
+    }
+
+    private boolean exists() {
+        return entityManager.find(StudentChangeCounter.class, StudentChangeCounter.ID) != null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One entry of the change feed. Upserts carry the student as it is now, or null when it
+ * has been deleted since; deletes are tombstones without a student.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentChangeDto {
+
+    private final Long sequence;
+    private final Long studentId;
+    private final StudentChangeType type;
+    private final StudentDto student;
+}
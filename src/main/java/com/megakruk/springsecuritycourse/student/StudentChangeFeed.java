@@ -0,0 +1,95 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the change feed to Server-Sent Events subscribers. Each event carries its
+ * sequence number as id, so a client reconnecting with Last-Event-ID resumes where it
+ * stopped. Commits only schedule a dispatch; one thread reads the new changes per
+ * subscriber, and commits arriving meanwhile are coalesced into the next dispatch.
+ */
+@Component
+public class StudentChangeFeed implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentChangeFeed.class);
+
+    private final StudentChangeService studentChangeService;
+    private final StudentConfig studentConfig;
+    private final Map<SseEmitter, AtomicLong> cursors = new ConcurrentHashMap<>();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+    private final ExecutorService dispatcher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("student-changes-"));
+
+    @Autowired
+    public StudentChangeFeed(StudentChangeService studentChangeService, StudentConfig studentConfig) {
+        this.studentChangeService = studentChangeService;
+        this.studentConfig = studentConfig;
+    }
+
+    /**
+     * Streams the changes after the cursor, or only future ones without a cursor.
+     */
+    public SseEmitter subscribe(Long since) {
+        // Fails with 400 or 410 before the stream is opened
+        StudentChangePage head = studentChangeService.findChanges(since, 1);
+        long cursor = since == null ? head.getCursor() : since;
+
+        SseEmitter emitter = new SseEmitter(studentConfig.getChangeStreamTimeoutMillis());
+        emitter.onCompletion(() -> cursors.remove(emitter));
+        emitter.onTimeout(() -> cursors.remove(emitter));
+        emitter.onError(e -> cursors.remove(emitter));
+        cursors.put(emitter, new AtomicLong(cursor));
+        changesCommitted();
+        return emitter;
+    }
+
+    public void changesCommitted() {
+        if (cursors.isEmpty() || !dispatchScheduled.compareAndSet(false, true))
+            return;
+        dispatcher.execute(() -> {
+            dispatchScheduled.set(false);
+            cursors.forEach(this::dispatch);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        cursors.keySet().forEach(SseEmitter::complete);
+    }
+
+    private void dispatch(SseEmitter emitter, AtomicLong cursor) {
+        try {
+            StudentChangePage page;
+            do {
+                page = studentChangeService.findChanges(cursor.get(), studentConfig.getMaxPageSize());
+                for (StudentChangeDto change : page.getChanges()) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSequence()))
+                            .name("change")
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                cursor.set(page.getCursor());
+            } while (page.isHasMore());
+        } catch (IOException | RuntimeException e) {
+            log.debug("Dropping change feed subscriber", e);
+            cursors.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records each student write in the caller's transaction. Changes are collected in memory
+ * and written just before the transaction commits, after its other writes have been
+ * flushed. Only then is the counter row, created by {@link StudentChangeCounterInitializer},
+ * locked, so writers serialize for the few change inserts rather than their whole
+ * transaction. A transaction with lower sequence numbers still always commits before one
+ * with higher numbers, and a reader that has seen sequence n has seen every change up to n.
+ */
+@Component
+public class StudentChangeLog {
+
+    private final EntityManager entityManager;
+    private final StudentChangeFeed studentChangeFeed;
+
+    @Autowired
+    public StudentChangeLog(EntityManager entityManager, StudentChangeFeed studentChangeFeed) {
+        this.entityManager = entityManager;
+        this.studentChangeFeed = studentChangeFeed;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long studentId, StudentChangeType type) {
+        pendingChanges().add(new PendingChange(studentId, type, Instant.now()));
+    }
+
+    /**
+     * Called before commit; tests that never commit call it directly.
+     */
+    void writePendingChanges() {
+        @SuppressWarnings("unchecked")
+        List<PendingChange> pendingChanges = (List<PendingChange>) TransactionSynchronizationManager.getResource(this);
+        if (pendingChanges == null || pendingChanges.isEmpty())
+            return;
+
+        // Student rows first, so the counter holder never waits on another writer's row locks
+        entityManager.flush();
+        StudentChangeCounter counter = entityManager.find(
+                StudentChangeCounter.class, StudentChangeCounter.ID, LockModeType.PESSIMISTIC_WRITE);
+        if (counter == null)
+            throw new IllegalStateException("Student change counter row is missing");
+        for (PendingChange change : pendingChanges)
+            entityManager.persist(new StudentChange(counter.next(), change.studentId, change.type, change.changedAt));
+        entityManager.flush();
+        pendingChanges.clear();
+    }
+
+    private List<PendingChange> pendingChanges() {
+        @SuppressWarnings("unchecked")
+        List<PendingChange> pendingChanges = (List<PendingChange>) TransactionSynchronizationManager.getResource(this);
+        if (pendingChanges != null)
+            return pendingChanges;
+
+        List<PendingChange> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                writePendingChanges();
+            }
+
+            @Override
+            public void afterCommit() {
+                studentChangeFeed.changesCommitted();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(StudentChangeLog.this);
+            }
+        });
+        return created;
+    }
+
+    @AllArgsConstructor
+    private static final class PendingChange {
+
+        private final Long studentId;
+        private final StudentChangeType type;
+        private final Instant changedAt;
+    }
+}
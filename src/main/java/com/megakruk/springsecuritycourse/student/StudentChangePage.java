@@ -0,0 +1,15 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class StudentChangePage {
+
+    private final List<StudentChangeDto> changes;
+    private final Long cursor;
+    private final boolean hasMore;
+}
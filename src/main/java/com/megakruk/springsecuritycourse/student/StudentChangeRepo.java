@@ -0,0 +1,27 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface StudentChangeRepo extends JpaRepository<StudentChange, Long> {
+
+    @Query("SELECT c FROM StudentChange c WHERE c.sequence > ?1 ORDER BY c.sequence ASC")
+    Slice<StudentChange> selectChangesAfter(long sequence, Pageable pageable);
+
+    @Query("SELECT MIN(c.sequence) FROM StudentChange c")
+    Long selectOldestSequence();
+
+    @Query("SELECT c.lastSequence FROM StudentChangeCounter c")
+    Long selectLastSequence();
+
+    @Modifying
+    @Query("DELETE FROM StudentChange c WHERE c.changedAt < ?1")
+    int deleteChangesBefore(Instant changedAt);
+}
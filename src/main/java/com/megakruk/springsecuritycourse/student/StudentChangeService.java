@@ -0,0 +1,95 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.GoneException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class StudentChangeService {
+
+    private final StudentChangeRepo studentChangeRepo;
+    private final StudentRepo studentRepo;
+    private final StudentConfig studentConfig;
+
+    @Autowired
+    public StudentChangeService(
+            StudentChangeRepo studentChangeRepo,
+            StudentRepo studentRepo,
+            StudentConfig studentConfig
+    ) {
+        this.studentChangeRepo = studentChangeRepo;
+        this.studentRepo = studentRepo;
+        this.studentConfig = studentConfig;
+    }
+
+    /**
+     * Changes after the cursor, oldest first. Without a cursor the page is empty and its
+     * cursor is the latest change, which is where a client starts after a full read.
+     * A cursor older than the retained changes is answered with 410, since the client
+     * would miss tombstones and has to read everything again.
+     */
+    @Transactional(readOnly = true)
+    public StudentChangePage findChanges(Long since, Integer limit) {
+        long lastSequence = lastSequence();
+        if (since == null)
+            return new StudentChangePage(List.of(), lastSequence, false);
+        if (since < 0)
+            throw new BadRequestException("Cursor must not be negative");
+
+        Long oldestSequence = studentChangeRepo.selectOldestSequence();
+        long firstRetained = oldestSequence != null ? oldestSequence : lastSequence + 1;
+        if (since + 1 < firstRetained)
+            throw new GoneException("Changes after " + since + " are no longer retained, read all students again");
+
+        int pageSize = limit == null
+                ? studentConfig.getDefaultPageSize()
+                : Math.min(Math.max(limit, 1), studentConfig.getMaxPageSize());
+        Slice<StudentChange> slice = studentChangeRepo.selectChangesAfter(since, PageRequest.of(0, pageSize));
+        List<StudentChange> changes = slice.getContent();
+
+        List<Long> upsertedIds = changes.stream()
+                .filter(change -> change.getType() == StudentChangeType.UPSERT)
+                .map(StudentChange::getStudentId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, StudentDto> students = upsertedIds.isEmpty()
+                ? Map.of()
+                : studentRepo.selectStudentDtosByIdIn(upsertedIds).stream()
+                        .collect(Collectors.toMap(StudentDto::getId, Function.identity()));
+
+        List<StudentChangeDto> changeDtos = changes.stream()
+                .map(change -> new StudentChangeDto(
+                        change.getSequence(),
+                        change.getStudentId(),
+                        change.getType(),
+                        change.getType() == StudentChangeType.UPSERT ? students.get(change.getStudentId()) : null
+                ))
+                .collect(Collectors.toList());
+        long cursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSequence();
+        return new StudentChangePage(changeDtos, cursor, slice.hasNext());
+    }
+
+    @Scheduled(fixedDelayString = "${application.students.changePruneIntervalMillis:3600000}")
+    @Transactional
+    public void pruneChanges() {
+        Instant retainedSince = Instant.now().minus(Duration.ofDays(studentConfig.getChangeRetentionDays()));
+        studentChangeRepo.deleteChangesBefore(retainedSince);
+    }
+
+    private long lastSequence() {
+        Long lastSequence = studentChangeRepo.selectLastSequence();
+        return lastSequence == null ? 0 : lastSequence;
+    }
+}
@@ -0,0 +1,6 @@
+package com.megakruk.springsecuritycourse.student;
+
+public enum StudentChangeType {
+    UPSERT,
+    DELETE
+}
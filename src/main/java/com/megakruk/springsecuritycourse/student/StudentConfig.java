@@ -0,0 +1,27 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "application.students")
+@Getter
+@Setter
+@NoArgsConstructor
+public class StudentConfig {
+
+    private Integer defaultPageSize = 50;
+    private Integer maxPageSize = 500;
+    private Integer maxImportSize = 10_000;
+    private Integer importBatchSize = 50;
+    private Integer cacheSize = 10_000;
+    private Integer cacheExpirationAfterSeconds = 60;
+    private Integer maxBatchSize = 1_000;
+    private Integer batchQueryChunkSize = 500;
+    private Integer maxSearchResults = 1_000;
+    private Integer changeRetentionDays = 7;
+    private Long changeStreamTimeoutMillis = 30 * 60 * 1_000L;
+}
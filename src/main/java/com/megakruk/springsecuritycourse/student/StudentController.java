@@ -2,10 +2,13 @@ package com.megakruk.springsecuritycourse.student;
 
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("api/v1/students")
 public class StudentController {
@@ -20,12 +23,60 @@ public class StudentController {
     @ApiOperation(
             value = "Retrieves a student",
             notes = "A student",
-            response = Student.class,
+            response = StudentDto.class,
             produces = "application/json"
     )
     @GetMapping(path = "{id}")
-    public ResponseEntity<Student> getStudent(@PathVariable("id") Long id) {
-        Student student = studentService.findStudentById(id);
-        return new ResponseEntity<>(student, HttpStatus.OK);
+    public ResponseEntity<StudentDto> getStudent(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (ifNoneMatch != null) {
+            Long version = studentService.findStudentVersion(id);
+            if (StudentETag.matchesAny(ifNoneMatch, version))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(StudentETag.of(version)).build();
+        }
+        StudentDto student = studentService.findStudentById(id);
+        return ResponseEntity.ok().eTag(StudentETag.of(student.getVersion())).body(student);
+    }
+
+    @ApiOperation(
+            value = "Searches students",
+            notes = "Students whose first name, last name or email starts with or contains the query, best matches first",
+            response = StudentDto.class,
+            produces = "application/json"
+    )
+    @GetMapping(path = "search")
+    public ResponseEntity<List<StudentDto>> searchStudents(
+            @RequestParam("q") String query,
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        List<StudentDto> students = studentService.searchStudents(query, offset, limit);
+        return new ResponseEntity<>(students, HttpStatus.OK);
+    }
+
+    @ApiOperation(
+            value = "Retrieves students by id",
+            notes = "Students in the order of the requested ids, with the ids that were not found",
+            response = StudentBatch.class,
+            produces = "application/json"
+    )
+    @GetMapping(params = "ids")
+    public ResponseEntity<StudentBatch> getStudents(@RequestParam("ids") List<Long> ids) {
+        StudentBatch batch = studentService.findStudentsByIds(ids);
+        return new ResponseEntity<>(batch, HttpStatus.OK);
+    }
+
+    @ApiOperation(
+            value = "Retrieves students by id",
+            notes = "Same as GET with ids, for id lists too long for a query string",
+            response = StudentBatch.class,
+            produces = "application/json"
+    )
+    @PostMapping(path = "batch")
+    public ResponseEntity<StudentBatch> getStudentsBatch(@RequestBody List<Long> ids) {
+        StudentBatch batch = studentService.findStudentsByIds(ids);
+        return new ResponseEntity<>(batch, HttpStatus.OK);
     }
 }
@@ -0,0 +1,48 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last student of a page. Clients get it as an opaque string and
+ * only ever hand it back.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final StudentSort sort;
+    private final Long id;
+    private final String lastName;
+
+    public static StudentCursor after(StudentDto student, StudentSort sort) {
+        return new StudentCursor(sort, student.getId(), sort == StudentSort.LAST_NAME ? student.getLastName() : null);
+    }
+
+    public static StudentCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 3);
+            StudentSort sort = StudentSort.valueOf(parts[0]);
+            Long id = Long.valueOf(parts[1]);
+            if (sort == StudentSort.LAST_NAME)
+                return new StudentCursor(sort, id, parts[2]);
+            return new StudentCursor(sort, id, null);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Cursor " + cursor + " is not valid");
+        }
+    }
+
+    public String encode() {
+        String value = sort.name() + SEPARATOR + id;
+        if (sort == StudentSort.LAST_NAME)
+            value += SEPARATOR + lastName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
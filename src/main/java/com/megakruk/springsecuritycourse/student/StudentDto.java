@@ -0,0 +1,19 @@
+package com.megakruk.springsecuritycourse.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read-only view of a student, selected with a constructor expression so Hibernate
+ * neither manages nor snapshots it.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentDto {
+
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final Long version;
+}
@@ -0,0 +1,70 @@
+package com.megakruk.springsecuritycourse.student;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Strong entity tags derived from the student version column.
+ */
+final class StudentETag {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private StudentETag() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * If-None-Match comparison, where weak tags match too.
+     */
+    static boolean matchesAny(String header, Long version) {
+        return matches(header, version, true);
+    }
+
+    /**
+     * If-Match comparison, where only strong tags can match.
+     */
+    static boolean matchesStrongly(String header, Long version) {
+        return matches(header, version, false);
+    }
+
+    /**
+     * Versions named by the strong tags of an If-Match header, or null when it is "*".
+     */
+    static Set<Long> strongVersions(String header) {
+        Set<Long> versions = new HashSet<>();
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*"))
+                return null;
+            if (candidate.length() < 2 || !candidate.startsWith("\"") || !candidate.endsWith("\""))
+                continue;
+            try {
+                versions.add(Long.valueOf(candidate.substring(1, candidate.length() - 1)));
+            } catch (NumberFormatException ignored) {
+                // Not one of our tags, so it cannot match
+            }
+        }
+        return versions;
+    }
+
+    private static boolean matches(String header, Long version, boolean allowWeak) {
+        String etag = of(version);
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*"))
+                return true;
+            if (candidate.startsWith(WEAK_PREFIX)) {
+                if (!allowWeak)
+                    continue;
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            }
+            if (candidate.equals(etag))
+                return true;
+        }
+        return false;
+    }
+}
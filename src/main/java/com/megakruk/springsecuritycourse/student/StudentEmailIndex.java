@@ -0,0 +1,80 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Emails of all students, loaded before the web server accepts requests, so no write
+ * can interleave with the load, and updated after each committed write. Emails are
+ * compared exactly, like the student_email_unique constraint and the repository
+ * queries. It only answers "known duplicate"; the constraint stays the final authority,
+ * and until the index is loaded callers have to ask the database.
+ */
+@Component
+public class StudentEmailIndex implements SmartInitializingSingleton {
+
+    private final StudentRepo studentRepo;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<Long, String> emailsById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public StudentEmailIndex(StudentRepo studentRepo, PlatformTransactionManager transactionManager) {
+        this.studentRepo = studentRepo;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<StudentDto> students = studentRepo.streamStudentDtos()) {
+                students.forEach(student -> put(student.getId(), student.getEmail()));
+            }
+        });
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean contains(String email) {
+        return email != null && idsByEmail.containsKey(email);
+    }
+
+    public synchronized void put(Long id, String email) {
+        if (id == null || email == null)
+            return;
+        String previousEmail = emailsById.put(id, email);
+        if (previousEmail != null && !previousEmail.equals(email))
+            idsByEmail.remove(previousEmail, id);
+        idsByEmail.put(email, id);
+    }
+
+    public synchronized void remove(Long id) {
+        String email = emailsById.remove(id);
+        if (email != null)
+            idsByEmail.remove(email, id);
+    }
+
+    public void putAfterCommit(Long id, String email) {
+        AfterCommit.run(() -> put(id, email));
+    }
+
+    public void removeAfterCommit(Long id) {
+        AfterCommit.run(() -> remove(id));
+    }
+}
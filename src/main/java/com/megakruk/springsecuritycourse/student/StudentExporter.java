@@ -0,0 +1,72 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Writes every student to an output stream row by row. Rows are read through a cursor
+ * as unmanaged views, so neither the persistence context nor the output buffer grows
+ * with the table.
+ */
+@Service
+public class StudentExporter {
+
+    private static final String CSV_HEADER = "id,firstName,lastName,email";
+
+    private final StudentRepo studentRepo;
+    private final ObjectWriter rowWriter;
+
+    @Autowired
+    public StudentExporter(StudentRepo studentRepo, ObjectMapper objectMapper) {
+        this.studentRepo = studentRepo;
+        this.rowWriter = objectMapper.writerFor(StudentDto.class);
+    }
+
+    @Transactional(readOnly = true)
+    public void export(StudentExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == StudentExportFormat.CSV)
+            writer.write(CSV_HEADER + "\n");
+
+        try (Stream<StudentDto> students = studentRepo.streamStudentDtos()) {
+            students.forEach(student -> {
+                try {
+                    writer.write(format == StudentExportFormat.CSV ? toCsv(student) : rowWriter.writeValueAsString(student));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static String toCsv(StudentDto student) {
+        return student.getId() + ","
+                + csvField(student.getFirstName()) + ","
+                + csvField(student.getLastName()) + ","
+                + csvField(student.getEmail());
+    }
+
+    private static String csvField(String value) {
+        if (value == null)
+            return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
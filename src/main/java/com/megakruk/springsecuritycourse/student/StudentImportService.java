@@ -0,0 +1,113 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts students in chunks of the JDBC batch size. Each chunk costs one query for
+ * taken emails and one batched insert; rows that cannot be inserted are reported by
+ * their index in the request instead of failing the whole import.
+ */
+@Service
+public class StudentImportService {
+
+    private final StudentRepo studentRepo;
+    private final StudentConfig studentConfig;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final StudentEmailIndex studentEmailIndex;
+    private final StudentSearchIndex studentSearchIndex;
+    private final StudentChangeLog studentChangeLog;
+
+    @Autowired
+    public StudentImportService(
+            StudentRepo studentRepo,
+            StudentConfig studentConfig,
+            EntityManager entityManager,
+            Validator validator,
+            StudentEmailIndex studentEmailIndex,
+            StudentSearchIndex studentSearchIndex,
+            StudentChangeLog studentChangeLog
+    ) {
+        this.studentRepo = studentRepo;
+        this.studentConfig = studentConfig;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.studentEmailIndex = studentEmailIndex;
+        this.studentSearchIndex = studentSearchIndex;
+        this.studentChangeLog = studentChangeLog;
+    }
+
+    @Transactional
+    public StudentBulkResult importStudents(List<Student> students) {
+        if (students.size() > studentConfig.getMaxImportSize())
+            throw new BadRequestException("At most " + studentConfig.getMaxImportSize() + " students can be imported at once");
+
+        List<StudentBulkError> errors = new ArrayList<>();
+        Set<String> requestEmails = new HashSet<>();
+        int imported = 0;
+        int offset = 0;
+
+        for (List<Student> chunk : Lists.partition(students, studentConfig.getImportBatchSize())) {
+            Set<String> chunkEmails = chunk.stream()
+                    .filter(Objects::nonNull)
+                    .map(Student::getEmail)
+                    .filter(email -> !Strings.isNullOrEmpty(email))
+                    .collect(Collectors.toSet());
+            Set<String> takenEmails = chunkEmails.isEmpty() ? Set.of() : studentRepo.selectExistingEmails(chunkEmails);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Student student = chunk.get(i);
+                String error = validate(student, takenEmails, requestEmails);
+                if (error != null) {
+                    errors.add(new StudentBulkError(offset + i, error));
+                    continue;
+                }
+                student.setId(null);
+                entityManager.persist(student);
+                studentEmailIndex.putAfterCommit(student.getId(), student.getEmail());
+                studentSearchIndex.putAfterCommit(student);
+                studentChangeLog.record(student.getId(), StudentChangeType.UPSERT);
+                imported++;
+            }
+
+            entityManager.flush();
+            entityManager.clear();
+            offset += chunk.size();
+        }
+
+        return new StudentBulkResult(imported, errors);
+    }
+
+    private String validate(Student student, Set<String> takenEmails, Set<String> requestEmails) {
+        if (student == null)
+            return "Student is missing";
+        if (student.getFirstName() == null || student.getLastName() == null || student.getEmail() == null)
+            return "First name, last name and email are required";
+
+        Set<ConstraintViolation<Student>> violations = validator.validate(student);
+        if (!violations.isEmpty())
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+
+        if (takenEmails.contains(student.getEmail()) || !requestEmails.add(student.getEmail()))
+            return "Email " + student.getEmail() + " is taken!";
+        return null;
+    }
+}
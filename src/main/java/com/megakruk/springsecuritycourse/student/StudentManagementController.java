@@ -1,39 +1,80 @@
 package com.megakruk.springsecuritycourse.student;
 
+import com.google.common.io.BaseEncoding;
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.PreconditionFailedException;
+import com.megakruk.springsecuritycourse.exception.StoredFileNotFoundException;
+import com.megakruk.springsecuritycourse.storage.StoredFile;
+import com.megakruk.springsecuritycourse.storage.StudentFileStore;
+import com.megakruk.springsecuritycourse.storage.ThumbnailConfig;
+import com.megakruk.springsecuritycourse.storage.ThumbnailService;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
-
-import static org.springframework.http.MediaType.IMAGE_JPEG;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("management/api/v1/students")
 public class StudentManagementController {
 
+    private static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    private static final String DIGEST = "Digest";
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
     private final StudentService studentService;
-    @Value("${uploadDir}")
-    private String UPLOAD_DIR;
+    private final StudentExporter studentExporter;
+    private final StudentImportService studentImportService;
+    private final StudentPatchService studentPatchService;
+    private final StudentFileStore studentFileStore;
+    private final ThumbnailService thumbnailService;
+    private final ThumbnailConfig thumbnailConfig;
+    private final StudentChangeService studentChangeService;
+    private final StudentChangeFeed studentChangeFeed;
 
     @Autowired
-    public StudentManagementController(StudentService studentService) {
+    public StudentManagementController(
+            StudentService studentService,
+            StudentExporter studentExporter,
+            StudentImportService studentImportService,
+            StudentPatchService studentPatchService,
+            StudentFileStore studentFileStore,
+            ThumbnailService thumbnailService,
+            ThumbnailConfig thumbnailConfig,
+            StudentChangeService studentChangeService,
+            StudentChangeFeed studentChangeFeed
+    ) {
         this.studentService = studentService;
+        this.studentExporter = studentExporter;
+        this.studentImportService = studentImportService;
+        this.studentPatchService = studentPatchService;
+        this.studentFileStore = studentFileStore;
+        this.thumbnailService = thumbnailService;
+        this.thumbnailConfig = thumbnailConfig;
+        this.studentChangeService = studentChangeService;
+        this.studentChangeFeed = studentChangeFeed;
     }
 
     @Bean
@@ -44,27 +85,101 @@ public class StudentManagementController {
     @ApiOperation(
             value = "Retrieves all students",
             notes = "A list of students",
-            response = Student.class,
+            response = StudentDto.class,
             produces = "application/json"
     )
     @GetMapping(path = "/all")
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
-    public ResponseEntity<List<Student>> getAllStudents() {
-        List<Student> students = studentService.findAllStudents();
+    public ResponseEntity<List<StudentDto>> getAllStudents(
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        List<StudentDto> students = studentService.findAllStudents(limit);
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
+    @ApiOperation(
+            value = "Retrieves a page of students",
+            notes = "Pass nextCursor of a page as cursor to get the following page",
+            response = StudentPage.class,
+            produces = "application/json"
+    )
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
+    public ResponseEntity<StudentPage> getStudents(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "sort", defaultValue = "ID") StudentSort sort
+    ) {
+        StudentPage page = studentService.findStudents(cursor, limit, sort);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @ApiOperation(
+            value = "Exports all students",
+            notes = "Streams every student as NDJSON or CSV"
+    )
+    @GetMapping(path = "/export")
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
+    public void exportStudents(
+            @RequestParam(value = "format", defaultValue = "NDJSON") StudentExportFormat format,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"students." + format.getFileExtension() + "\"");
+        studentExporter.export(format, response.getOutputStream());
+    }
+
+    @ApiOperation(
+            value = "Retrieves changes to students",
+            notes = "Changes after the since cursor, oldest first; pass the returned cursor as since next time. " +
+                    "Without since, returns the current cursor to start from. 410 when since is no longer retained",
+            response = StudentChangePage.class,
+            produces = "application/json"
+    )
+    @GetMapping(path = "/changes")
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
+    public ResponseEntity<StudentChangePage> getChanges(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        StudentChangePage page = studentChangeService.findChanges(since, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @ApiOperation(
+            value = "Streams changes to students",
+            notes = "Server-Sent Events named change, with the sequence number as event id"
+    )
+    @GetMapping(path = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
+    public SseEmitter streamChanges(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId
+    ) {
+        return studentChangeFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+
     @ApiOperation(
             value = "Retrieves a student",
             notes = "A student",
-            response = Student.class,
+            response = StudentDto.class,
             produces = "application/json"
     )
     @GetMapping(path = "{id}")
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
-    public ResponseEntity<Student> getStudent(@PathVariable("id") Long id) {
-        Student student = studentService.findStudentById(id);
-        return new ResponseEntity<>(student, HttpStatus.OK);
+    public ResponseEntity<StudentDto> getStudent(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (ifNoneMatch != null) {
+            Long version = studentService.findStudentVersion(id);
+            if (StudentETag.matchesAny(ifNoneMatch, version))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(StudentETag.of(version)).build();
+        }
+        StudentDto student = studentService.findStudentById(id);
+        return ResponseEntity.ok().eTag(StudentETag.of(student.getVersion())).body(student);
     }
 
     @ApiOperation(
@@ -80,6 +195,19 @@ public class StudentManagementController {
         return new ResponseEntity<>(newStudent, HttpStatus.CREATED);
     }
 
+    @ApiOperation(
+            value = "Imports students",
+            notes = "Bulk student registration, rows that cannot be imported are reported by index",
+            response = StudentBulkResult.class,
+            produces = "application/json"
+    )
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('student:write')")
+    public ResponseEntity<StudentBulkResult> importStudents(@RequestBody List<Student> students) {
+        StudentBulkResult result = studentImportService.importStudents(students);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     @ApiOperation(
             value = "Updates student info",
             notes = "Student update operation",
@@ -90,10 +218,47 @@ public class StudentManagementController {
     @PreAuthorize("hasAuthority('student:write')")
     public ResponseEntity<Student> updateStudent(
             @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody Student student
     ) {
-        studentService.updateStudent(id, student);
-        return new ResponseEntity<>(HttpStatus.OK);
+        Student updatedStudent;
+        try {
+            updatedStudent = studentService.updateStudent(id, student, ifMatch);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new PreconditionFailedException("Student with id " + id + " has been modified");
+        }
+        return ResponseEntity.ok().eTag(StudentETag.of(updatedStudent.getVersion())).build();
+    }
+
+    @ApiOperation(
+            value = "Patches student info",
+            notes = "JSON merge patch, only the given properties are updated"
+    )
+    @PatchMapping(path = "{id}", consumes = MERGE_PATCH_JSON)
+    @PreAuthorize("hasAuthority('student:write')")
+    public ResponseEntity<?> patchStudent(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, Object> patch
+    ) {
+        Long version = studentPatchService.patchStudent(id, patch, ifMatch);
+        if (version == null)
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        return ResponseEntity.noContent().eTag(StudentETag.of(version)).build();
+    }
+
+    @ApiOperation(
+            value = "Patches many students",
+            notes = "JSON merge patches with the student id and optionally the expected version, "
+                    + "patches that cannot be applied are reported by index",
+            response = StudentBulkResult.class,
+            produces = "application/json"
+    )
+    @PatchMapping(consumes = MERGE_PATCH_JSON)
+    @PreAuthorize("hasAuthority('student:write')")
+    public ResponseEntity<StudentBulkResult> patchStudents(@RequestBody List<Map<String, Object>> patches) {
+        StudentBulkResult result = studentPatchService.patchStudents(patches);
+        return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
     @ApiOperation(
@@ -103,36 +268,132 @@ public class StudentManagementController {
     )
     @DeleteMapping("{id}")
     @PreAuthorize("hasAuthority('student:write')")
-    @Transactional
     public ResponseEntity<?> deleteStudent(@PathVariable("id") Long id) {
         studentService.deleteStudent(id);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @ApiOperation(
+            value = "Deletes students from repository",
+            notes = "Bulk delete operation, succeeded is the number of students deleted",
+            response = StudentBulkResult.class,
+            produces = "application/json"
+    )
+    @PostMapping("/delete")
+    @PreAuthorize("hasAuthority('student:write')")
+    public ResponseEntity<StudentBulkResult> deleteStudents(@RequestBody List<Long> ids) {
+        StudentBulkResult result = studentService.deleteStudents(ids);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @ApiOperation(
+            value = "Uploads a file of a student",
+            notes = "Pass an RFC 3230 Digest header with sha-256 to have the upload verified",
+            response = StoredFile.class,
+            produces = "application/json"
+    )
     @PostMapping("{id}/upload")
     @PreAuthorize("hasAuthority('student:write')")
-    public boolean upload(
+    public ResponseEntity<StoredFile> upload(
             @PathVariable("id") Long id,
-            @RequestParam("file") MultipartFile file
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = DIGEST, required = false) String digest
     ) throws IOException {
-        String directory = UPLOAD_DIR + id + "/";
-        File newFile = new File(directory + file.getOriginalFilename());
-        if (!newFile.exists())
-            newFile.mkdirs();
-        file.transferTo(newFile);
-        return true;
+        StoredFile storedFile = studentFileStore.store(
+                id,
+                file.getOriginalFilename(),
+                file.getInputStream(),
+                sha256FromDigest(digest)
+        );
+        thumbnailService.generateAsync(storedFile);
+        return new ResponseEntity<>(storedFile, HttpStatus.OK);
     }
 
+    @ApiOperation(
+            value = "Lists the files of a student",
+            notes = "Name, size, SHA-256 and modification time of each file, ordered by name",
+            response = StoredFile.class,
+            produces = "application/json"
+    )
+    @GetMapping("{id}/files")
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')")
+    public ResponseEntity<List<StoredFile>> getFiles(@PathVariable("id") Long id) {
+        return new ResponseEntity<>(studentFileStore.list(id), HttpStatus.OK);
+    }
+
+    @DeleteMapping("{id}/files/{fileName}")
+    @PreAuthorize("hasAuthority('student:write')")
+    public ResponseEntity<?> deleteFile(
+            @PathVariable("id") Long id,
+            @PathVariable("fileName") String fileName
+    ) {
+        if (!studentFileStore.delete(id, fileName))
+            throw new StoredFileNotFoundException("File " + fileName + " of student " + id + " was not found");
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Streams the file instead of buffering it. Spring answers Range requests with 206 and
+     * conditional requests matching the ETag or Last-Modified with 304.
+     */
     @GetMapping("{id}/download/{fileName}")
-    public ResponseEntity<byte[]> download(
+    public ResponseEntity<Resource> download(
             @PathVariable("id") Long id,
             @PathVariable("fileName") String fileName
-    ) throws IOException {
-        String directory = UPLOAD_DIR + id + "/";
-        Path path = new File(directory + fileName).toPath();
-        byte[] fileData = Files.readAllBytes(path);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(IMAGE_JPEG);
-        return new ResponseEntity<>(fileData, headers, HttpStatus.OK);
+    ) {
+        StoredFile storedFile = studentFileStore.find(id, fileName).orElseThrow(() ->
+                new StoredFileNotFoundException("File " + fileName + " of student " + id + " was not found"));
+        Resource resource = new FileSystemResource(studentFileStore.path(storedFile));
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .eTag(storedFile.getSha256())
+                .lastModified(storedFile.getLastModified())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(resource);
+    }
+
+    /**
+     * Thumbnails are addressed by content hash, so they can be cached for good.
+     * 404 until the thumbnail has been generated, and for good when it cannot be.
+     */
+    @GetMapping("{id}/thumbnails/{sha256}/{size}")
+    public ResponseEntity<Resource> thumbnail(
+            @PathVariable("id") Long id,
+            @PathVariable("sha256") String sha256,
+            @PathVariable("size") int size
+    ) {
+        StoredFile storedFile = studentFileStore.list(id).stream()
+                .filter(file -> file.getSha256().equals(sha256) && thumbnailService.isSupported(file))
+                .findFirst()
+                .orElseThrow(() -> new StoredFileNotFoundException("Student " + id + " has no image " + sha256));
+        if (!thumbnailService.isConfiguredSize(size))
+            throw new StoredFileNotFoundException("There are no thumbnails of size " + size);
+
+        Resource resource = thumbnailService.find(storedFile, size)
+                .map(FileSystemResource::new)
+                .orElseThrow(() -> new StoredFileNotFoundException("Thumbnail of " + sha256 + " is not available"));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(thumbnailService.contentType()))
+                .eTag(sha256 + "-" + size)
+                .header(HttpHeaders.CACHE_CONTROL, "private, max-age="
+                        + TimeUnit.DAYS.toSeconds(thumbnailConfig.getMaxAgeDays()) + ", immutable")
+                .body(resource);
+    }
+
+    private static String sha256FromDigest(String digest) {
+        if (digest == null)
+            return null;
+        for (String instance : digest.split(",")) {
+            int separator = instance.indexOf('=');
+            if (separator > 0 && instance.substring(0, separator).trim().equalsIgnoreCase("sha-256")) {
+                try {
+                    return BaseEncoding.base16().lowerCase().encode(
+                            Base64.getDecoder().decode(instance.substring(separator + 1).trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new BadRequestException("Digest header is not valid base64");
+                }
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,219 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.ConflictException;
+import com.megakruk.springsecuritycourse.exception.PreconditionFailedException;
+import com.megakruk.springsecuritycourse.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies JSON merge patches (RFC 7396) as a single UPDATE of the changed columns,
+ * without loading the student. The version is bumped in the same statement, and a new
+ * email is only written when no other student has it, so a taken email fails the row
+ * instead of the transaction.
+ */
+@Service
+public class StudentPatchService {
+
+    private static final Set<String> PATCHABLE_PROPERTIES = Set.of("firstName", "lastName", "email");
+    private static final String ID = "id";
+    private static final String VERSION = "version";
+    private static final String EMAIL = "email";
+
+    private final StudentRepo studentRepo;
+    private final StudentCache studentCache;
+    private final StudentConfig studentConfig;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final StudentEmailIndex studentEmailIndex;
+    private final StudentSearchIndex studentSearchIndex;
+    private final StudentChangeLog studentChangeLog;
+
+    @Autowired
+    public StudentPatchService(
+            StudentRepo studentRepo,
+            StudentCache studentCache,
+            StudentConfig studentConfig,
+            EntityManager entityManager,
+            Validator validator,
+            StudentEmailIndex studentEmailIndex,
+            StudentSearchIndex studentSearchIndex,
+            StudentChangeLog studentChangeLog
+    ) {
+        this.studentRepo = studentRepo;
+        this.studentCache = studentCache;
+        this.studentConfig = studentConfig;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.studentEmailIndex = studentEmailIndex;
+        this.studentSearchIndex = studentSearchIndex;
+        this.studentChangeLog = studentChangeLog;
+    }
+
+    /**
+     * Returns the new version when the If-Match header named exactly one, otherwise null.
+     */
+    @Transactional
+    public Long patchStudent(Long id, Map<String, Object> patch, String ifMatch) {
+        Set<Long> expectedVersions = ifMatch == null ? null : StudentETag.strongVersions(ifMatch);
+        update(id, changes(patch), expectedVersions);
+        return expectedVersions != null && expectedVersions.size() == 1
+                ? expectedVersions.iterator().next() + 1
+                : null;
+    }
+
+    /**
+     * Each entry is a merge patch with the student id, and optionally the expected version.
+     * Entries that cannot be applied are reported by index; the others are applied.
+     */
+    @Transactional
+    public StudentBulkResult patchStudents(List<Map<String, Object>> patches) {
+        if (patches.size() > studentConfig.getMaxBatchSize())
+            throw new BadRequestException("At most " + studentConfig.getMaxBatchSize() + " students can be patched at once");
+
+        List<StudentBulkError> errors = new ArrayList<>();
+        Set<String> requestEmails = new HashSet<>();
+        int patched = 0;
+
+        for (int i = 0; i < patches.size(); i++) {
+            try {
+                Map<String, Object> patch = new LinkedHashMap<>();
+                if (patches.get(i) != null)
+                    patch.putAll(patches.get(i));
+                Long id = longValue(patch.remove(ID), ID);
+                if (id == null)
+                    throw new BadRequestException("Student id is missing");
+                Long version = longValue(patch.remove(VERSION), VERSION);
+
+                Map<String, String> changes = changes(patch);
+                checkEmailNotRepeated(changes, requestEmails);
+                update(id, changes, version == null ? null : Set.of(version));
+                patched++;
+            } catch (BadRequestException | UserNotFoundException | PreconditionFailedException e) {
+                errors.add(new StudentBulkError(i, e.getMessage()));
+            }
+        }
+
+        return new StudentBulkResult(patched, errors);
+    }
+
+    private Map<String, String> changes(Map<String, Object> patch) {
+        if (patch.isEmpty())
+            throw new BadRequestException("Patch does not change anything");
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            String property = entry.getKey();
+            if (!PATCHABLE_PROPERTIES.contains(property))
+                throw new BadRequestException("Property " + property + " cannot be patched");
+            if (!(entry.getValue() instanceof String))
+                throw new BadRequestException("Property " + property + " must be a string");
+
+            String value = (String) entry.getValue();
+            Set<ConstraintViolation<Student>> violations = validator.validateValue(Student.class, property, value);
+            if (!violations.isEmpty())
+                throw new BadRequestException(violations.stream()
+                        .map(violation -> property + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            changes.put(property, value);
+        }
+        return changes;
+    }
+
+    /**
+     * Two entries of one bulk patch must not claim the same email. Format and uniqueness
+     * against other students are checked by changes() and the UPDATE itself.
+     */
+    private static void checkEmailNotRepeated(Map<String, String> changes, Set<String> requestEmails) {
+        String email = changes.get(EMAIL);
+        if (email != null && !requestEmails.add(email))
+            throw new BadRequestException("Email " + email + " is taken!");
+    }
+
+    private void update(Long id, Map<String, String> changes, Set<Long> expectedVersions) {
+        if (expectedVersions != null && expectedVersions.isEmpty()) {
+            requireExists(id);
+            throw new PreconditionFailedException("Student with id " + id + " has been modified");
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Student> update = criteriaBuilder.createCriteriaUpdate(Student.class);
+        Root<Student> student = update.from(Student.class);
+        changes.forEach(update::set);
+        update.set(student.<Long>get(VERSION), criteriaBuilder.sum(student.<Long>get(VERSION), 1L));
+
+        Predicate where = criteriaBuilder.equal(student.get(ID), id);
+        if (expectedVersions != null)
+            where = criteriaBuilder.and(where, student.get(VERSION).in(expectedVersions));
+        String email = changes.get(EMAIL);
+        if (email != null) {
+            Subquery<Long> taken = update.subquery(Long.class);
+            Root<Student> other = taken.from(Student.class);
+            taken.select(other.get(ID)).where(
+                    criteriaBuilder.equal(other.get(EMAIL), email),
+                    criteriaBuilder.notEqual(other.get(ID), id));
+            where = criteriaBuilder.and(where, criteriaBuilder.not(criteriaBuilder.exists(taken)));
+        }
+        update.where(where);
+
+        if (executeUpdate(update, email) == 0) {
+            requireExists(id);
+            if (email != null && studentRepo.selectExistsByEmailForOtherStudent(email, id))
+                throw new BadRequestException("Email " + email + " is taken!");
+            throw new PreconditionFailedException("Student with id " + id + " has been modified");
+        }
+        studentCache.evictAfterCommit(id);
+        if (changes.containsKey(EMAIL))
+            studentEmailIndex.putAfterCommit(id, changes.get(EMAIL));
+        studentSearchIndex.patchAfterCommit(id, changes);
+        studentChangeLog.record(id, StudentChangeType.UPSERT);
+    }
+
+    /**
+     * The constraint only fires when a concurrent transaction commits the same email after
+     * the guard ran. The persistence context is then marked rollback-only, so the whole
+     * request fails with 409 rather than just the row.
+     */
+    private int executeUpdate(CriteriaUpdate<Student> update, String email) {
+        try {
+            return entityManager.createQuery(update).executeUpdate();
+        } catch (PersistenceException e) {
+            if (StudentService.isEmailConstraintViolation(e))
+                throw new ConflictException("Email " + email + " was taken concurrently, retry the request");
+            throw e;
+        }
+    }
+
+    private void requireExists(Long id) {
+        if (studentRepo.selectVersionById(id).isEmpty())
+            throw new UserNotFoundException("Student with id " + id + " was not found");
+    }
+
+    private static Long longValue(Object value, String property) {
+        if (value == null)
+            return null;
+        if (value instanceof Integer || value instanceof Long)
+            return ((Number) value).longValue();
+        throw new BadRequestException("Property " + property + " must be a number");
+    }
+}
@@ -1,18 +1,62 @@
 package com.megakruk.springsecuritycourse.student;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface StudentRepo extends JpaRepository<Student, Long> {
 
-    void deleteStudentById(Long id);
+    String SELECT_DTO = "" +
+            "SELECT new com.megakruk.springsecuritycourse.student.StudentDto(" +
+            "s.id, s.firstName, s.lastName, s.email, s.version) " +
+            "FROM Student s ";
+
+    @Modifying
+    @Query("DELETE FROM Student s WHERE s.id = ?1")
+    int deleteStudentById(Long id);
+
+    @Modifying
+    @Query("DELETE FROM Student s WHERE s.id IN ?1")
+    int deleteStudentsByIdIn(Collection<Long> ids);
+
+    /**
+     * Locks the rows so they cannot disappear before the caller deletes them.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s.id FROM Student s WHERE s.id IN ?1")
+    List<Long> selectIdsByIdInForUpdate(Collection<Long> ids);
 
     Optional<Student> findStudentById(Long id);
 
+    @Transactional(readOnly = true)
+    @Query(SELECT_DTO + "WHERE s.id = ?1")
+    Optional<StudentDto> selectStudentDtoById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_DTO + "WHERE s.id IN ?1")
+    List<StudentDto> selectStudentDtosByIdIn(Collection<Long> ids);
+
+    @Query("SELECT s.version FROM Student s WHERE s.id = ?1")
+    Optional<Long> selectVersionById(Long id);
+
     @Query("" +
             "SELECT CASE WHEN COUNT(s) > 0 THEN " +
             "TRUE ELSE FALSE END " +
@@ -20,4 +64,37 @@ public interface StudentRepo extends JpaRepository<Student, Long> {
             "WHERE s.email = ?1"
     )
     boolean selectExistsByEmail(String email);
+
+    @Query("" +
+            "SELECT CASE WHEN COUNT(s) > 0 THEN " +
+            "TRUE ELSE FALSE END " +
+            "FROM Student s " +
+            "WHERE s.email = ?1 AND s.id <> ?2"
+    )
+    boolean selectExistsByEmailForOtherStudent(String email, Long id);
+
+    @Query("SELECT s.email FROM Student s WHERE s.email IN ?1")
+    Set<String> selectExistingEmails(Collection<String> emails);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_DTO)
+    Slice<StudentDto> selectStudentDtos(Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_DTO + "WHERE s.id > ?1 ORDER BY s.id ASC")
+    Slice<StudentDto> selectStudentDtosAfterId(Long id, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_DTO +
+            "WHERE s.lastName > ?1 OR (s.lastName = ?1 AND s.id > ?2) " +
+            "ORDER BY s.lastName ASC, s.id ASC"
+    )
+    Slice<StudentDto> selectStudentDtosAfterLastName(String lastName, Long id, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query(SELECT_DTO + "ORDER BY s.id ASC")
+    Stream<StudentDto> streamStudentDtos();
 }
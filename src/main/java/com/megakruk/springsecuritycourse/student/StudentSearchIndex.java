@@ -0,0 +1,349 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Trigram index over first name, last name and email, loaded before the web server
+ * accepts requests, so no write can interleave with the load, and updated after each
+ * committed write.
+ * <p>
+ * Every write appends the student under a new slot, so posting lists stay sorted and
+ * can be intersected with binary search; slots of replaced or deleted students are
+ * skipped and reclaimed by compacting once they outnumber the live ones. Queries of
+ * one or two characters match field prefixes only, longer ones match anywhere.
+ */
+@Component
+public class StudentSearchIndex implements SmartInitializingSingleton {
+
+    static final int EXACT = 3;
+    static final int PREFIX = 2;
+    static final int SUBSTRING = 1;
+
+    private static final char BOUNDARY = '\0';
+    private static final int MIN_COMPACTION = 1_024;
+
+    private static final Comparator<Match> RANKING = Comparator
+            .comparingInt((Match match) -> match.score).reversed()
+            .thenComparing(match -> match.entry.lastName)
+            .thenComparing(match -> match.entry.firstName)
+            .thenComparing(match -> match.entry.student.getId());
+
+    private final StudentRepo studentRepo;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postingsByTrigram = new HashMap<>();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private Entry[] entries = new Entry[1_024];
+    private int slotCount;
+    private volatile boolean loaded;
+
+    @Autowired
+    public StudentSearchIndex(StudentRepo studentRepo, PlatformTransactionManager transactionManager) {
+        this.studentRepo = studentRepo;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<StudentDto> students = studentRepo.streamStudentDtos()) {
+                students.forEach(this::put);
+            }
+        });
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the matches ranked by exact, prefix and substring match on any field,
+     * then by last name, first name and id.
+     */
+    public List<StudentDto> search(String query, int offset, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || limit < 1)
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            Postings[] postings = postings(normalizedQuery);
+            if (postings == null)
+                return List.of();
+
+            int wanted = offset + limit;
+            PriorityQueue<Match> best = new PriorityQueue<>(Math.min(wanted, 1_024) + 1, RANKING.reversed());
+            Postings smallest = postings[0];
+            for (int i = 0; i < smallest.size; i++) {
+                int slot = smallest.slots[i];
+                if (!containsAll(postings, slot))
+                    continue;
+                Entry entry = entries[slot];
+                if (entry == null)
+                    continue;
+                int score = entry.score(normalizedQuery);
+                if (score == 0)
+                    continue;
+                best.add(new Match(entry, score));
+                if (best.size() > wanted)
+                    best.poll();
+            }
+
+            List<Match> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            List<StudentDto> students = new ArrayList<>(Math.max(0, ranked.size() - offset));
+            for (int i = offset; i < ranked.size(); i++)
+                students.add(ranked.get(i).entry.student);
+            return students;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(StudentDto student) {
+        if (student.getId() == null)
+            return;
+        lock.writeLock().lock();
+        try {
+            putLocked(student);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(id);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies changed properties to an indexed student; the patch has already bumped its version.
+     */
+    public void patch(Long id, Map<String, String> changes) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(id);
+            if (slot == null)
+                return;
+            StudentDto current = entries[slot].student;
+            putLocked(new StudentDto(
+                    id,
+                    changes.getOrDefault("firstName", current.getFirstName()),
+                    changes.getOrDefault("lastName", current.getLastName()),
+                    changes.getOrDefault("email", current.getEmail()),
+                    current.getVersion() == null ? null : current.getVersion() + 1
+            ));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the student when the transaction commits, so generated ids and versions are set.
+     */
+    public void putAfterCommit(Student student) {
+        AfterCommit.run(() -> put(new StudentDto(
+                student.getId(),
+                student.getFirstName(),
+                student.getLastName(),
+                student.getEmail(),
+                student.getVersion()
+        )));
+    }
+
+    public void patchAfterCommit(Long id, Map<String, String> changes) {
+        AfterCommit.run(() -> patch(id, changes));
+    }
+
+    public void removeAfterCommit(Long id) {
+        AfterCommit.run(() -> remove(id));
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Postings[] postings(String query) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        if (query.length() < 3) {
+            String padded = "" + BOUNDARY + BOUNDARY + query;
+            trigrams.add(trigram(padded, query.length() - 1));
+        } else {
+            for (int i = 0; i + 3 <= query.length(); i++)
+                trigrams.add(trigram(query, i));
+        }
+
+        Postings[] postings = new Postings[trigrams.size()];
+        int i = 0;
+        for (long trigram : trigrams) {
+            Postings found = postingsByTrigram.get(trigram);
+            if (found == null)
+                return null;
+            postings[i++] = found;
+        }
+        Arrays.sort(postings, Comparator.comparingInt(found -> found.size));
+        return postings;
+    }
+
+    private static boolean containsAll(Postings[] postings, int slot) {
+        for (int i = 1; i < postings.length; i++) {
+            if (!postings[i].contains(slot))
+                return false;
+        }
+        return true;
+    }
+
+    private void putLocked(StudentDto student) {
+        removeSlot(student.getId());
+        Entry entry = new Entry(student);
+        if (slotCount == entries.length)
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        int slot = slotCount++;
+        entries[slot] = entry;
+        slotsById.put(student.getId(), slot);
+        for (long trigram : entry.trigrams())
+            postingsByTrigram.computeIfAbsent(trigram, key -> new Postings()).add(slot);
+        compactIfSparse();
+    }
+
+    private void removeSlot(Long id) {
+        Integer slot = slotsById.remove(id);
+        if (slot != null)
+            entries[slot] = null;
+    }
+
+    private void compactIfSparse() {
+        int dead = slotCount - slotsById.size();
+        if (dead < MIN_COMPACTION || dead < slotsById.size())
+            return;
+
+        Entry[] live = new Entry[Math.max(1_024, slotsById.size() * 2)];
+        int liveCount = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (entries[slot] != null)
+                live[liveCount++] = entries[slot];
+        }
+        entries = live;
+        slotCount = liveCount;
+        slotsById.clear();
+        postingsByTrigram.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotsById.put(entries[slot].student.getId(), slot);
+            for (long trigram : entries[slot].trigrams())
+                postingsByTrigram.computeIfAbsent(trigram, key -> new Postings()).add(slot);
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String value, int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+
+    private static final class Entry {
+
+        private final StudentDto student;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+
+        private Entry(StudentDto student) {
+            this.student = student;
+            this.firstName = normalize(student.getFirstName());
+            this.lastName = normalize(student.getLastName());
+            this.email = normalize(student.getEmail());
+        }
+
+        private int score(String query) {
+            boolean prefixOnly = query.length() < 3;
+            return Math.max(score(lastName, query, prefixOnly),
+                    Math.max(score(firstName, query, prefixOnly), score(email, query, prefixOnly)));
+        }
+
+        private static int score(String field, String query, boolean prefixOnly) {
+            if (field.equals(query))
+                return EXACT;
+            if (field.startsWith(query))
+                return PREFIX;
+            if (!prefixOnly && field.contains(query))
+                return SUBSTRING;
+            return 0;
+        }
+
+        private Set<Long> trigrams() {
+            Set<Long> trigrams = new LinkedHashSet<>();
+            for (String field : List.of(firstName, lastName, email)) {
+                String padded = "" + BOUNDARY + BOUNDARY + field;
+                for (int i = 0; i + 3 <= padded.length(); i++)
+                    trigrams.add(trigram(padded, i));
+            }
+            return trigrams;
+        }
+    }
+
+    private static final class Match {
+
+        private final Entry entry;
+        private final int score;
+
+        private Match(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Slots in ascending order, since slots are only ever appended.
+     */
+    private static final class Postings {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length)
+                slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+
+        private boolean contains(int slot) {
+            return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+    }
+}
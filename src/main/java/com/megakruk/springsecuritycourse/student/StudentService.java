@@ -1,49 +1,266 @@
 package com.megakruk.springsecuritycourse.student;
 
+import com.google.common.collect.Lists;
 import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.PreconditionFailedException;
+import com.megakruk.springsecuritycourse.exception.ServiceUnavailableException;
 import com.megakruk.springsecuritycourse.exception.UserNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class StudentService {
 
+    private static final String EMAIL_CONSTRAINT = "student_email_unique";
+
     private final StudentRepo studentRepo;
+    private final StudentConfig studentConfig;
+    private final StudentCache studentCache;
+    private final StudentEmailIndex studentEmailIndex;
+    private final StudentSearchIndex studentSearchIndex;
+    private final StudentChangeLog studentChangeLog;
 
     @Autowired
-    public StudentService(StudentRepo studentRepo) {
+    public StudentService(
+            StudentRepo studentRepo,
+            StudentConfig studentConfig,
+            StudentCache studentCache,
+            StudentEmailIndex studentEmailIndex,
+            StudentSearchIndex studentSearchIndex,
+            StudentChangeLog studentChangeLog
+    ) {
         this.studentRepo = studentRepo;
+        this.studentConfig = studentConfig;
+        this.studentCache = studentCache;
+        this.studentEmailIndex = studentEmailIndex;
+        this.studentSearchIndex = studentSearchIndex;
+        this.studentChangeLog = studentChangeLog;
     }
 
+    @Transactional
     public Student addStudent(Student student) {
-        boolean existsEmail = studentRepo.selectExistsByEmail(student.getEmail());
+        boolean existsEmail = studentEmailIndex.isLoaded()
+                ? studentEmailIndex.contains(student.getEmail())
+                : studentRepo.selectExistsByEmail(student.getEmail());
         if(existsEmail)
             throw new BadRequestException("Email " + student.getEmail() + " is taken!");
-        return studentRepo.save(student);
+        // Always a new student, whatever id the client sent
+        student.setId(null);
+
+        Student savedStudent;
+        try {
+            // Flushed here so a duplicate email surfaces as a violation we can report
+            savedStudent = studentRepo.saveAndFlush(student);
+        } catch (DataIntegrityViolationException e) {
+            if (isEmailConstraintViolation(e))
+                throw new BadRequestException("Email " + student.getEmail() + " is taken!");
+            throw e;
+        }
+        studentEmailIndex.putAfterCommit(savedStudent.getId(), savedStudent.getEmail());
+        studentSearchIndex.putAfterCommit(savedStudent);
+        studentChangeLog.record(savedStudent.getId(), StudentChangeType.UPSERT);
+        return savedStudent;
+    }
+
+    @Transactional(readOnly = true)
+    public List<StudentDto> findAllStudents(Integer limit) {
+        return findStudents(null, limit, StudentSort.ID).getStudents();
+    }
+
+    @Transactional(readOnly = true)
+    public StudentPage findStudents(String cursor, Integer limit, StudentSort sort) {
+        int pageSize = pageSize(limit);
+        Slice<StudentDto> slice;
+
+        if (cursor == null) {
+            Sort order = sort == StudentSort.LAST_NAME ? Sort.by("lastName", "id") : Sort.by("id");
+            slice = studentRepo.selectStudentDtos(PageRequest.of(0, pageSize, order));
+        } else {
+            StudentCursor after = StudentCursor.decode(cursor);
+            if (after.getSort() != sort)
+                throw new BadRequestException("Cursor was issued for sort " + after.getSort());
+            Pageable pageable = PageRequest.of(0, pageSize);
+            slice = sort == StudentSort.LAST_NAME
+                    ? studentRepo.selectStudentDtosAfterLastName(after.getLastName(), after.getId(), pageable)
+                    : studentRepo.selectStudentDtosAfterId(after.getId(), pageable);
+        }
+
+        List<StudentDto> students = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? StudentCursor.after(students.get(students.size() - 1), sort).encode()
+                : null;
+        return new StudentPage(students, nextCursor);
     }
 
-    public List<Student> findAllStudents() {
-        return studentRepo.findAll();
+    @Transactional
+    public Student updateStudent(Long id, Student student) {
+        return updateStudent(id, student, null);
     }
 
+    /**
+     * Updates the student only if its current version satisfies the If-Match header, when there is one.
+     */
     @Transactional
-    public void updateStudent(Long id, Student student) {
-        Student studentToBeUpdated = findStudentById(id);
+    public Student updateStudent(Long id, Student student, String ifMatch) {
+        Student studentToBeUpdated = studentRepo.findStudentById(id).orElseThrow(() ->
+                new UserNotFoundException("Student with id " + id + " was not found"));
+        if (ifMatch != null && !StudentETag.matchesStrongly(ifMatch, studentToBeUpdated.getVersion()))
+            throw new PreconditionFailedException("Student with id " + id + " has been modified");
         studentToBeUpdated.setAllAttributes(student);
+        studentCache.evictAfterCommit(id);
+        studentEmailIndex.putAfterCommit(id, student.getEmail());
+        studentSearchIndex.putAfterCommit(studentToBeUpdated);
+        studentChangeLog.record(id, StudentChangeType.UPSERT);
+        return studentToBeUpdated;
+    }
+
+    /**
+     * Ranked matches of the query against first name, last name and email, served from memory.
+     */
+    public List<StudentDto> searchStudents(String query, Integer offset, Integer limit) {
+        if (query == null || query.isBlank())
+            throw new BadRequestException("Search query must not be empty");
+        int first = offset == null ? 0 : offset;
+        if (first < 0)
+            throw new BadRequestException("Offset must not be negative");
+        int pageSize = pageSize(limit);
+        if ((long) first + pageSize > studentConfig.getMaxSearchResults())
+            throw new BadRequestException("Only the first " + studentConfig.getMaxSearchResults() + " matches can be paged through");
+        if (!studentSearchIndex.isLoaded())
+            throw new ServiceUnavailableException("Student search is not ready yet");
+        return studentSearchIndex.search(query, first, pageSize);
+    }
+
+    public StudentDto findStudentById(Long id) {
+        return studentCache.get(id);
     }
 
-    public Student findStudentById(Long id) {
-        return studentRepo.findStudentById(id).orElseThrow(() ->
+    /**
+     * Resolves distinct ids in request order. Ids not in the cache are read with chunked IN queries.
+     */
+    @Transactional(readOnly = true)
+    public StudentBatch findStudentsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty())
+            throw new BadRequestException("No student ids given");
+        if (ids.size() > studentConfig.getMaxBatchSize())
+            throw new BadRequestException("At most " + studentConfig.getMaxBatchSize() + " students can be fetched at once");
+        if (ids.stream().anyMatch(Objects::isNull))
+            throw new BadRequestException("Student ids must not be null");
+
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Map<Long, StudentDto> found = new HashMap<>(studentCache.getAllPresent(distinctIds));
+
+        List<Long> uncachedIds = distinctIds.stream()
+                .filter(id -> !found.containsKey(id))
+                .collect(Collectors.toList());
+        for (List<Long> chunk : Lists.partition(uncachedIds, studentConfig.getBatchQueryChunkSize())) {
+            List<StudentDto> loaded = studentRepo.selectStudentDtosByIdIn(chunk);
+            studentCache.putAll(loaded);
+            for (StudentDto student : loaded)
+                found.put(student.getId(), student);
+        }
+
+        List<StudentDto> students = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            StudentDto student = found.get(id);
+            if (student != null)
+                students.add(student);
+            else
+                missingIds.add(id);
+        }
+        return new StudentBatch(students, missingIds);
+    }
+
+    /**
+     * Answers from the cache when possible, otherwise reads only the version column.
+     */
+    public Long findStudentVersion(Long id) {
+        StudentDto cached = studentCache.getIfPresent(id);
+        if (cached != null)
+            return cached.getVersion();
+        return studentRepo.selectVersionById(id).orElseThrow(() ->
                 new UserNotFoundException("Student with id " + id + " was not found"));
     }
 
+    @Transactional
     public void deleteStudent(Long id) {
-        boolean exists = studentRepo.existsById(id);
-        if(!exists)
+        int deleted = studentRepo.deleteStudentById(id);
+        if (deleted == 0)
             throw new UserNotFoundException("Student with id " + id + " was not found");
-        studentRepo.deleteStudentById(id);
+        studentCache.evictAfterCommit(id);
+        studentEmailIndex.removeAfterCommit(id);
+        studentSearchIndex.removeAfterCommit(id);
+        studentChangeLog.record(id, StudentChangeType.DELETE);
+    }
+
+    /**
+     * Locks and deletes the existing students of each chunk with one statement each.
+     * Unknown ids are skipped, so only deleted students are reported and recorded.
+     */
+    @Transactional
+    public StudentBulkResult deleteStudents(List<Long> ids) {
+        if (ids.size() > studentConfig.getMaxBatchSize())
+            throw new BadRequestException("At most " + studentConfig.getMaxBatchSize() + " students can be deleted at once");
+
+        List<StudentBulkError> errors = new ArrayList<>();
+        Set<Long> distinctIds = new LinkedHashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null)
+                errors.add(new StudentBulkError(i, "Student id is missing"));
+            else
+                distinctIds.add(ids.get(i));
+        }
+
+        int deleted = 0;
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(distinctIds), studentConfig.getBatchQueryChunkSize())) {
+            List<Long> existingIds = studentRepo.selectIdsByIdInForUpdate(chunk);
+            if (existingIds.isEmpty())
+                continue;
+            deleted += studentRepo.deleteStudentsByIdIn(existingIds);
+            for (Long id : existingIds) {
+                studentCache.evictAfterCommit(id);
+                studentEmailIndex.removeAfterCommit(id);
+                studentSearchIndex.removeAfterCommit(id);
+                studentChangeLog.record(id, StudentChangeType.DELETE);
+            }
+        }
+
+        return new StudentBulkResult(deleted, errors);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null)
+            return studentConfig.getDefaultPageSize();
+        if (limit < 1)
+            throw new BadRequestException("Limit must be positive");
+        return Math.min(limit, studentConfig.getMaxPageSize());
+    }
+
+    static boolean isEmailConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                return constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
+            }
+        }
+        return false;
     }
 }
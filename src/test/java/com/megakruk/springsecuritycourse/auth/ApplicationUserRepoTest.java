@@ -0,0 +1,45 @@
+package com.megakruk.springsecuritycourse.auth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Optional;
+
+import static com.megakruk.springsecuritycourse.security.ApplicationUserRole.STUDENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ApplicationUserRepoTest {
+
+    @Autowired
+    private ApplicationUserRepo underTest;
+
+    @AfterEach
+    void tearDown() {
+        underTest.deleteAll();
+    }
+
+    @Test
+    void itShouldFindApplicationUserByUsername() {
+        //given
+        underTest.save(new ApplicationUserEntity("mark", "hash", STUDENT));
+
+        //when
+        Optional<ApplicationUserEntity> applicationUser = underTest.findByUsername("mark");
+
+        //then
+        assertThat(applicationUser).isPresent();
+        assertThat(applicationUser.get().getRole()).isEqualTo(STUDENT);
+    }
+
+    @Test
+    void itShouldNotFindUnknownUsername() {
+        //when
+        Optional<ApplicationUserEntity> applicationUser = underTest.findByUsername("mark");
+
+        //then
+        assertThat(applicationUser).isEmpty();
+    }
+}
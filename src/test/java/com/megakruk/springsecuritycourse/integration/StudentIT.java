@@ -180,12 +180,12 @@ public class StudentIT {
 
         body.add(KEY, new ClassPathResource(FILENAME));
         HttpEntity<MultiValueMap<String, Object>> httpEntity = new HttpEntity<>(body, headers);
-        ResponseEntity<Boolean> response = restTemplate.postForEntity(
+        ResponseEntity<String> response = restTemplate.postForEntity(
                 UPLOAD_URL,
                 httpEntity,
-                Boolean.class
+                String.class
         );
-        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody()).contains("sha256");
         System.out.println(response.getBody());
     }
 
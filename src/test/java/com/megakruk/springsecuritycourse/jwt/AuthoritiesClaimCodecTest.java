@@ -0,0 +1,84 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.megakruk.springsecuritycourse.security.ApplicationUserRole;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthoritiesClaimCodecTest {
+
+    @Test
+    void itShouldRoundTripEveryRole() {
+        for (ApplicationUserRole role : ApplicationUserRole.values()) {
+            //given
+            Set<SimpleGrantedAuthority> authorities = role.getGrantedAuthorities();
+
+            //when
+            Optional<Integer> code = AuthoritiesClaimCodec.encode(authorities);
+
+            //then
+            assertThat(code).isPresent();
+            assertThat(AuthoritiesClaimCodec.decode(code.get())).isEqualTo(authorities);
+        }
+    }
+
+    @Test
+    void itShouldKeepEncodedValuesOfIssuedTokens() {
+        assertThat(AuthoritiesClaimCodec.encode(ApplicationUserRole.STUDENT.getGrantedAuthorities()))
+                .contains(4);
+        assertThat(AuthoritiesClaimCodec.encode(ApplicationUserRole.ADMIN.getGrantedAuthorities()))
+                .contains(65_551);
+        assertThat(AuthoritiesClaimCodec.encode(ApplicationUserRole.ADMININTERN.getGrantedAuthorities()))
+                .contains(131_077);
+    }
+
+    @Test
+    void itShouldShareDecodedAuthoritySets() {
+        //given
+        int code = AuthoritiesClaimCodec.encode(ApplicationUserRole.ADMIN.getGrantedAuthorities()).orElseThrow();
+
+        //when
+        Set<GrantedAuthority> first = AuthoritiesClaimCodec.decode(code);
+        Set<GrantedAuthority> second = AuthoritiesClaimCodec.decode(code);
+
+        //then
+        assertThat(first).isSameAs(second);
+    }
+
+    @Test
+    void itShouldNotEncodeUnknownAuthorities() {
+        //given
+        List<SimpleGrantedAuthority> authorities = List.of(
+                new SimpleGrantedAuthority("ROLE_STUDENT"),
+                new SimpleGrantedAuthority("library:read")
+        );
+
+        //when
+        Optional<Integer> code = AuthoritiesClaimCodec.encode(authorities);
+
+        //then
+        assertThat(code).isEmpty();
+    }
+
+    @Test
+    void itShouldRejectUnknownCode() {
+        assertThatThrownBy(() -> AuthoritiesClaimCodec.decode(Integer.MAX_VALUE))
+                .isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> AuthoritiesClaimCodec.decode(-1))
+                .isInstanceOf(MalformedJwtException.class);
+    }
+
+    @Test
+    void itShouldRejectUnknownPermissionBits() {
+        assertThatThrownBy(() -> AuthoritiesClaimCodec.decode(1 << 4))
+                .isInstanceOf(MalformedJwtException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class JwtTokenCacheTest {
+
+    private JwtTokenCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig jwtConfig = new JwtConfig();
+        jwtConfig.setVerifiedTokenCacheSize(2);
+        underTest = new JwtTokenCache(jwtConfig, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void itShouldReturnCachedTokenWithFreshAuthentication() {
+        //given
+        underTest.put("token", verifiedToken(System.currentTimeMillis() + 60_000));
+
+        //when
+        VerifiedToken cached = underTest.get("token");
+        Authentication first = cached.newAuthentication();
+        Authentication second = underTest.get("token").newAuthentication();
+        first.setAuthenticated(false);
+
+        //then
+        assertThat(first).isNotSameAs(second);
+        assertThat(second.getName()).isEqualTo("mark");
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(underTest.stats().hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldNotReturnExpiredAuthentication() {
+        //given
+        underTest.put("token", verifiedToken(System.currentTimeMillis() - 1));
+
+        //when
+        VerifiedToken cached = underTest.get("token");
+
+        //then
+        assertThat(cached).isNull();
+    }
+
+    @Test
+    void itShouldEvictWhenFull() {
+        //given
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 3; i++)
+            underTest.put("token" + i, verifiedToken(expiresAt));
+
+        //when
+        long evictions = underTest.stats().evictionCount();
+
+        //then
+        assertThat(evictions).isEqualTo(1);
+    }
+
+    private static VerifiedToken verifiedToken(long expiresAt) {
+        return new VerifiedToken("mark", List.of(), "token-id", new Date(expiresAt));
+    }
+}
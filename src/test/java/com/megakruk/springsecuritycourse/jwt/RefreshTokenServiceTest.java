@@ -0,0 +1,91 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import com.megakruk.springsecuritycourse.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static com.megakruk.springsecuritycourse.security.ApplicationUserRole.ADMIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    private static final String KEY = "rtyhwue5h7e9ha78gewgh0e9sdfsdgrtye57y5yedrgdrt55yr56y5rthdtr6y66yudfe5y5ye5";
+
+    private RefreshTokenService underTest;
+    private JwtTokenService jwtTokenService;
+    @Mock
+    private RefreshTokenFamilyRepo refreshTokenFamilyRepo;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig jwtConfig = new JwtConfig();
+        jwtTokenService = new JwtTokenService(Keys.hmacShaKeyFor(KEY.getBytes()), jwtConfig);
+        underTest = new RefreshTokenService(jwtConfig, jwtTokenService, refreshTokenFamilyRepo);
+    }
+
+    @Test
+    void canRefreshTokens() {
+        //given
+        TokenPair issued = underTest.issueTokens("dom", ADMIN.getGrantedAuthorities());
+        RefreshTokenFamily family = savedFamily();
+        given(refreshTokenFamilyRepo.findFamilyForUpdate(family.getId())).willReturn(Optional.of(family));
+        String previousTokenId = family.getCurrentTokenId();
+
+        //when
+        TokenPair refreshed = underTest.refreshTokens(issued.getRefreshToken());
+
+        //then
+        Claims accessClaims = jwtTokenService.parseClaims(refreshed.getAccessToken());
+        assertThat(accessClaims.getSubject()).isEqualTo("dom");
+        assertThat(jwtTokenService.isRefreshToken(accessClaims)).isFalse();
+        assertThat(jwtTokenService.getAuthorities(accessClaims)).isEqualTo(ADMIN.getGrantedAuthorities());
+        assertThat(family.getCurrentTokenId()).isNotEqualTo(previousTokenId);
+    }
+
+    @Test
+    void shouldRevokeFamilyWhenRefreshTokenIsReused() {
+        //given
+        TokenPair issued = underTest.issueTokens("dom", ADMIN.getGrantedAuthorities());
+        RefreshTokenFamily family = savedFamily();
+        given(refreshTokenFamilyRepo.findFamilyForUpdate(family.getId())).willReturn(Optional.of(family));
+        underTest.refreshTokens(issued.getRefreshToken());
+
+        //when
+
+        //then
+        assertThatThrownBy(() -> underTest.refreshTokens(issued.getRefreshToken()))
+                .isInstanceOf(InvalidTokenException.class);
+        verify(refreshTokenFamilyRepo).delete(family);
+    }
+
+    @Test
+    void shouldRejectAccessTokenAsRefreshToken() {
+        //given
+        TokenPair issued = underTest.issueTokens("dom", ADMIN.getGrantedAuthorities());
+
+        //when
+
+        //then
+        assertThatThrownBy(() -> underTest.refreshTokens(issued.getAccessToken()))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("Not a refresh token");
+    }
+
+    private RefreshTokenFamily savedFamily() {
+        ArgumentCaptor<RefreshTokenFamily> familyCaptor = ArgumentCaptor.forClass(RefreshTokenFamily.class);
+        verify(refreshTokenFamilyRepo).save(familyCaptor.capture());
+        return familyCaptor.getValue();
+    }
+}
@@ -0,0 +1,67 @@
+package com.megakruk.springsecuritycourse.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JwtConfig jwtConfig;
+    private FileRevokedTokenStore revokedTokenStore;
+    private RevokedTokenRegistry underTest;
+
+    @BeforeEach
+    void setUp() {
+        jwtConfig = new JwtConfig();
+        revokedTokenStore = new FileRevokedTokenStore(tempDir.resolve("revoked-tokens.txt"));
+        underTest = new RevokedTokenRegistry(revokedTokenStore, jwtConfig);
+    }
+
+    @Test
+    void itShouldRevokeToken() {
+        //when
+        underTest.revoke("jti-1", new Date(System.currentTimeMillis() + 60_000));
+
+        //then
+        assertThat(underTest.isRevoked("jti-1")).isTrue();
+        assertThat(underTest.isRevoked("jti-2")).isFalse();
+        assertThat(underTest.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void itShouldKeepRevocationsAcrossRestarts() {
+        //given
+        underTest.revoke("jti-1", new Date(System.currentTimeMillis() + 60_000));
+
+        //when
+        RevokedTokenRegistry restarted = new RevokedTokenRegistry(revokedTokenStore, jwtConfig);
+
+        //then
+        assertThat(restarted.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void itShouldPruneExpiredRevocations() {
+        //given
+        revokedTokenStore.addRevokedToken("expired", System.currentTimeMillis() - 1);
+        revokedTokenStore.addRevokedToken("active", System.currentTimeMillis() + 60_000);
+
+        //when
+        RevokedTokenRegistry restarted = new RevokedTokenRegistry(revokedTokenStore, jwtConfig);
+
+        //then
+        assertThat(restarted.isRevoked("expired")).isFalse();
+        assertThat(restarted.isRevoked("active")).isTrue();
+        Map<String, Long> stored = revokedTokenStore.loadRevokedTokens();
+        assertThat(stored).containsOnlyKeys("active");
+    }
+}
@@ -0,0 +1,76 @@
+package com.megakruk.springsecuritycourse.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthorityMaskExpressionParserTest {
+
+    private static final List<String> EXPRESSIONS = List.of(
+            "hasAnyRole('ROLE_ADMIN', 'ROLE_ADMININTERN')",
+            "hasAuthority('student:write')",
+            "hasRole('ADMIN')",
+            "hasAnyAuthority('course:write', 'student:read')"
+    );
+
+    private final AuthorityMaskExpressionParser underTest =
+            new AuthorityMaskExpressionParser(new SpelExpressionParser());
+    private final DefaultMethodSecurityExpressionHandler expressionHandler =
+            new DefaultMethodSecurityExpressionHandler();
+
+    @Test
+    void itShouldCompileCommonAuthorityChecks() {
+        for (String expression : EXPRESSIONS)
+            assertThat(underTest.parseExpression(expression)).isInstanceOf(AuthorityMaskExpression.class);
+    }
+
+    @Test
+    void itShouldFallBackToSpelForOtherExpressions() {
+        //when
+        Expression unknownAuthority = underTest.parseExpression("hasAuthority('library:read')");
+        Expression compound = underTest.parseExpression("hasRole('ADMIN') and isAuthenticated()");
+
+        //then
+        assertThat(unknownAuthority).isNotInstanceOf(AuthorityMaskExpression.class);
+        assertThat(compound).isNotInstanceOf(AuthorityMaskExpression.class);
+    }
+
+    @Test
+    void itShouldAgreeWithSpel() throws NoSuchMethodException {
+        //given
+        List<Authentication> authentications = new ArrayList<>();
+        for (ApplicationUserRole role : ApplicationUserRole.values())
+            authentications.add(new UsernamePasswordAuthenticationToken(role.name(), null, role.getGrantedAuthorities()));
+        authentications.add(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        SimpleMethodInvocation methodInvocation =
+                new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+
+        for (String expression : EXPRESSIONS) {
+            for (Authentication authentication : authentications) {
+                EvaluationContext context = expressionHandler.createEvaluationContext(authentication, methodInvocation);
+
+                //when
+                boolean compiled = ExpressionUtils.evaluateAsBoolean(underTest.parseExpression(expression), context);
+                boolean spel = ExpressionUtils.evaluateAsBoolean(
+                        expressionHandler.getExpressionParser().parseExpression(expression), context);
+
+                //then
+                assertThat(compiled).as("%s for %s", expression, authentication.getName()).isEqualTo(spel);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.megakruk.springsecuritycourse.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder underTest;
+
+    @BeforeEach
+    void setUp() {
+        PasswordHashingConfig passwordHashingConfig = new PasswordHashingConfig();
+        passwordHashingConfig.setHashingThreads(1);
+        passwordHashingConfig.setHashingQueueCapacity(1);
+        passwordHashingConfig.setRetryAfterSeconds(3);
+        underTest = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), passwordHashingConfig, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        underTest.destroy();
+    }
+
+    @Test
+    void itShouldHashOnThePool() {
+        //given
+        release.countDown();
+
+        //when
+        String encoded = underTest.encode("password");
+
+        //then
+        assertThat(encoded).isEqualTo("password");
+        assertThat(meterRegistry.get("password.hashing.latency").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldFailFastWhenQueueIsFull() throws Exception {
+        //given
+        callers.submit(() -> underTest.encode("running"));
+        started.await();
+        callers.submit(() -> underTest.encode("queued"));
+        while (meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1)
+            Thread.onSpinWait();
+
+        //when
+
+        //then
+        assertThatThrownBy(() -> underTest.matches("rejected", "rejected"))
+                .isInstanceOf(PasswordHashingOverloadedException.class)
+                .hasFieldOrPropertyWithValue("retryAfterSeconds", 3);
+    }
+
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StudentFileStoreTest {
+
+    private static final String PHOTO_SHA_256 = "55c64d0fcd6f9d5f7c828093857e3fdfda68478bb4e9bd24d481ef391c7804e8";
+
+    @TempDir
+    Path directory;
+
+    private StorageConfig storageConfig;
+    private StudentFileStore underTest;
+
+    @BeforeEach
+    void setUp() {
+        storageConfig = new StorageConfig();
+        storageConfig.setDirectory(directory.toString());
+        underTest = new StudentFileStore(storageConfig, new BlobStore(storageConfig));
+    }
+
+    @Test
+    void itShouldKeepIdenticalFilesOnce() throws IOException {
+        //given
+        underTest.store(1L, "photo.jpeg", data("photo"), null);
+
+        //when
+        StoredFile storedFile = underTest.store(2L, "me.jpeg", data("photo"), null);
+
+        //then
+        assertThat(storedFile.getSha256()).isEqualTo(PHOTO_SHA_256);
+        assertThat(storedFile.getSize()).isEqualTo(5);
+        assertThat(blobCount()).isEqualTo(1);
+        assertThat(underTest.find(1L, "photo.jpeg").orElseThrow().getSha256()).isEqualTo(PHOTO_SHA_256);
+        assertThat(Files.readString(underTest.path(storedFile))).isEqualTo("photo");
+    }
+
+    @Test
+    void itShouldNotStoreDataWithWrongChecksum() throws IOException {
+        //given
+        String wrongSha256 = PHOTO_SHA_256.replace('5', '6');
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.store(1L, "photo.jpeg", data("photo"), wrongSha256))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(underTest.find(1L, "photo.jpeg")).isEmpty();
+        assertThat(blobCount()).isZero();
+    }
+
+    @Test
+    void itShouldRejectFileNamesOutsideTheStudent() {
+        assertThatThrownBy(() -> underTest.store(1L, "../2/photo.jpeg", data("photo"), null))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void itShouldAdoptFilesFromOldLayout() throws IOException {
+        //given
+        Path legacyFile = Files.createDirectories(directory.resolve("15")).resolve("photo.jpeg");
+        Files.writeString(legacyFile, "photo");
+
+        //when
+        StudentFileStore store = new StudentFileStore(storageConfig, new BlobStore(storageConfig));
+
+        //then
+        assertThat(store.list(15L)).extracting(StoredFile::getSha256).containsExactly(PHOTO_SHA_256);
+        assertThat(Files.exists(legacyFile.getParent())).isFalse();
+    }
+
+    @Test
+    void itShouldListFilesAfterRestart() {
+        //given
+        underTest.store(1L, "photo.jpeg", data("photo"), null);
+        underTest.store(1L, "cv.pdf", data("cv"), null);
+
+        //when
+        StudentFileStore restarted = new StudentFileStore(storageConfig, new BlobStore(storageConfig));
+
+        //then
+        assertThat(restarted.list(1L)).extracting(StoredFile::getName).containsExactly("cv.pdf", "photo.jpeg");
+        assertThat(restarted.list(2L)).isEmpty();
+    }
+
+    @Test
+    void itShouldDeleteBlobOnlyWhenNoFileRefersToIt() throws IOException {
+        //given
+        underTest.store(1L, "photo.jpeg", data("photo"), null);
+        underTest.store(2L, "me.jpeg", data("photo"), null);
+
+        //when
+        boolean deleted = underTest.delete(1L, "photo.jpeg");
+        long blobsAfterFirstDelete = blobCount();
+        underTest.delete(2L, "me.jpeg");
+
+        //then
+        assertThat(deleted).isTrue();
+        assertThat(blobsAfterFirstDelete).isEqualTo(1);
+        assertThat(blobCount()).isZero();
+        assertThat(underTest.delete(2L, "me.jpeg")).isFalse();
+    }
+
+    @Test
+    void itShouldDeleteReplacedBlob() throws IOException {
+        //given
+        underTest.store(1L, "photo.jpeg", data("photo"), null);
+
+        //when
+        underTest.store(1L, "photo.jpeg", data("new photo"), null);
+
+        //then
+        assertThat(blobCount()).isEqualTo(1);
+        assertThat(underTest.list(1L)).extracting(StoredFile::getSize).containsExactly(9L);
+    }
+
+    private static InputStream data(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long blobCount() throws IOException {
+        Path blobs = directory.resolve("blobs");
+        if (!Files.exists(blobs))
+            return 0;
+        try (Stream<Path> files = Files.walk(blobs)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
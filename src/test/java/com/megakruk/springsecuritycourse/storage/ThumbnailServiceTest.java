@@ -0,0 +1,138 @@
+package com.megakruk.springsecuritycourse.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private BlobStore blobStore;
+    private ThumbnailService underTest;
+
+    @BeforeEach
+    void setUp() {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setDirectory(directory.toString());
+        blobStore = new BlobStore(storageConfig);
+        underTest = new ThumbnailService(blobStore, new ThumbnailConfig(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void itShouldFitImageIntoEachSizeKeepingAspectRatio() throws IOException {
+        //given
+        Blob blob = blobStore.put(new ByteArrayInputStream(png(400, 200)), null);
+
+        //when
+        underTest.generate(blob.getSha256());
+
+        //then
+        BufferedImage small = ImageIO.read(underTest.thumbnailPath(blob.getSha256(), 64).toFile());
+        BufferedImage large = ImageIO.read(underTest.thumbnailPath(blob.getSha256(), 256).toFile());
+        assertThat(small.getWidth()).isEqualTo(64);
+        assertThat(small.getHeight()).isEqualTo(32);
+        assertThat(large.getWidth()).isEqualTo(256);
+        assertThat(large.getHeight()).isEqualTo(128);
+    }
+
+    @Test
+    void itShouldNotEnlargeSmallImages() throws IOException {
+        //given
+        Blob blob = blobStore.put(new ByteArrayInputStream(png(40, 20)), null);
+
+        //when
+        underTest.generate(blob.getSha256());
+
+        //then
+        BufferedImage large = ImageIO.read(underTest.thumbnailPath(blob.getSha256(), 256).toFile());
+        assertThat(large.getWidth()).isEqualTo(40);
+    }
+
+    @Test
+    void itShouldSubsampleLargeImages() throws IOException {
+        //given
+        Blob blob = blobStore.put(new ByteArrayInputStream(png(2_000, 1_000)), null);
+
+        //when
+        underTest.generate(blob.getSha256());
+
+        //then
+        BufferedImage large = ImageIO.read(underTest.thumbnailPath(blob.getSha256(), 256).toFile());
+        assertThat(large.getWidth()).isEqualTo(256);
+        assertThat(large.getHeight()).isEqualTo(128);
+    }
+
+    @Test
+    void itShouldSkipImagesAbovePixelLimit() throws IOException {
+        //given
+        ThumbnailConfig thumbnailConfig = new ThumbnailConfig();
+        thumbnailConfig.setMaxPixels(799L);
+        ThumbnailService limited = new ThumbnailService(blobStore, thumbnailConfig, new SimpleMeterRegistry());
+        Blob blob = blobStore.put(new ByteArrayInputStream(png(40, 20)), null);
+
+        //when
+        try {
+            limited.generate(blob.getSha256());
+        } finally {
+            limited.destroy();
+        }
+
+        //then
+        assertThat(limited.thumbnailPath(blob.getSha256(), 64)).doesNotExist();
+        assertThat(limited.failedPath(blob.getSha256())).exists();
+    }
+
+    @Test
+    void itShouldNotRetryImagesThatCannotBeRead() throws IOException {
+        //given
+        byte[] png = png(40, 20);
+        Blob blob = blobStore.put(new ByteArrayInputStream(Arrays.copyOf(png, png.length / 2)), null);
+        StoredFile storedFile = new StoredFile("photo.png", blob.getSha256(), 0, Instant.now());
+        underTest.generate(blob.getSha256());
+
+        //when
+        Optional<Path> thumbnail = underTest.find(storedFile, 64);
+
+        //then
+        assertThat(underTest.failedPath(blob.getSha256())).exists();
+        assertThat(thumbnail).isEmpty();
+        assertThat(underTest.thumbnailPath(blob.getSha256(), 64)).doesNotExist();
+    }
+
+    @Test
+    void itShouldOnlySupportImages() {
+        assertThat(underTest.isSupported(storedFile("photo.JPEG"))).isTrue();
+        assertThat(underTest.isSupported(storedFile("notes.txt"))).isFalse();
+    }
+
+    private static StoredFile storedFile(String name) {
+        return new StoredFile(name, "0".repeat(64), 0, Instant.now());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.UserNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class StudentCacheTest {
+
+    private final ExecutorService readers = Executors.newFixedThreadPool(2);
+    private StudentCache underTest;
+    @Mock
+    private StudentRepo studentRepo;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StudentCache(studentRepo, new StudentConfig(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        readers.shutdownNow();
+    }
+
+    @Test
+    void itShouldLoadConcurrentMissesOnce() throws Exception {
+        //given
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(studentRepo.selectStudentDtoById(1L)).willAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L));
+        });
+
+        //when
+        Future<StudentDto> first = readers.submit(() -> underTest.get(1L));
+        loading.await(5, TimeUnit.SECONDS);
+        Future<StudentDto> second = readers.submit(() -> underTest.get(1L));
+        Thread.sleep(50);
+        release.countDown();
+
+        //then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(second.get(5, TimeUnit.SECONDS));
+        verify(studentRepo, times(1)).selectStudentDtoById(1L);
+    }
+
+    @Test
+    void itShouldReloadAfterEviction() {
+        //given
+        given(studentRepo.selectStudentDtoById(1L))
+                .willReturn(Optional.of(new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L)));
+        underTest.get(1L);
+
+        //when
+        underTest.evict(1L);
+        underTest.get(1L);
+
+        //then
+        verify(studentRepo, times(2)).selectStudentDtoById(1L);
+        assertThat(underTest.stats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldNotCacheMissingStudents() {
+        //given
+        given(studentRepo.selectStudentDtoById(1L)).willReturn(Optional.empty());
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.get(1L))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("not found");
+        assertThatThrownBy(() -> underTest.get(1L))
+                .isInstanceOf(UserNotFoundException.class);
+        verify(studentRepo, times(2)).selectStudentDtoById(1L);
+    }
+}
@@ -0,0 +1,94 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.GoneException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class StudentChangeServiceTest {
+
+    @Autowired
+    private StudentRepo studentRepo;
+    @Autowired
+    private StudentChangeRepo studentChangeRepo;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StudentChangeLog studentChangeLog;
+    private StudentChangeService underTest;
+
+    @BeforeEach
+    void setUp() {
+        new StudentChangeCounterInitializer(entityManager, transactionManager).afterSingletonsInstantiated();
+        studentChangeLog = new StudentChangeLog(entityManager, mock(StudentChangeFeed.class));
+        underTest = new StudentChangeService(studentChangeRepo, studentRepo, new StudentConfig());
+    }
+
+    @Test
+    void itShouldReturnChangesAfterCursorInOrder() {
+        //given
+        Student jim = studentRepo.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+        Student mark = studentRepo.saveAndFlush(new Student("Mark", "Hamill", "mhamill@gmail.com"));
+        long cursor = underTest.findChanges(null, null).getCursor();
+        studentChangeLog.record(jim.getId(), StudentChangeType.UPSERT);
+        studentChangeLog.record(mark.getId(), StudentChangeType.UPSERT);
+        studentChangeLog.record(99L, StudentChangeType.DELETE);
+        studentChangeLog.writePendingChanges();
+
+        //when
+        StudentChangePage firstPage = underTest.findChanges(cursor, 2);
+        StudentChangePage secondPage = underTest.findChanges(firstPage.getCursor(), 2);
+
+        //then
+        assertThat(firstPage.getChanges()).extracting(StudentChangeDto::getSequence)
+                .containsExactly(cursor + 1, cursor + 2);
+        assertThat(firstPage.getChanges().get(0).getStudent().getEmail()).isEqualTo("jimmy@gmail.com");
+        assertThat(firstPage.isHasMore()).isTrue();
+        assertThat(secondPage.getChanges()).extracting(StudentChangeDto::getType)
+                .containsExactly(StudentChangeType.DELETE);
+        assertThat(secondPage.getChanges().get(0).getStudent()).isNull();
+        assertThat(secondPage.isHasMore()).isFalse();
+    }
+
+    @Test
+    void shouldThrowWhenChangesAfterCursorWereDropped() {
+        //given
+        studentChangeLog.record(1L, StudentChangeType.DELETE);
+        studentChangeLog.record(2L, StudentChangeType.DELETE);
+        studentChangeLog.writePendingChanges();
+        long cursor = underTest.findChanges(null, null).getCursor();
+        studentChangeRepo.deleteAll();
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.findChanges(cursor - 2, null))
+                .isInstanceOf(GoneException.class);
+        assertThat(underTest.findChanges(cursor, null).getChanges()).isEmpty();
+    }
+
+    @Test
+    void itShouldOnlyWriteChangesWhenTransactionIsAboutToCommit() {
+        //given
+        long cursor = underTest.findChanges(null, null).getCursor();
+
+        //when
+        studentChangeLog.record(1L, StudentChangeType.DELETE);
+
+        //then
+        assertThat(underTest.findChanges(null, null).getCursor()).isEqualTo(cursor);
+        studentChangeLog.writePendingChanges();
+        assertThat(underTest.findChanges(cursor, null).getChanges()).extracting(StudentChangeDto::getSequence)
+                .containsExactly(cursor + 1);
+    }
+}
@@ -0,0 +1,21 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StudentETagTest {
+
+    @Test
+    void itShouldMatchAnyListedTagForIfNoneMatch() {
+        assertThat(StudentETag.matchesAny("\"1\", W/\"3\"", 3L)).isTrue();
+        assertThat(StudentETag.matchesAny("*", 3L)).isTrue();
+        assertThat(StudentETag.matchesAny("\"1\"", 3L)).isFalse();
+    }
+
+    @Test
+    void itShouldOnlyMatchStrongTagsForIfMatch() {
+        assertThat(StudentETag.matchesStrongly("\"3\"", 3L)).isTrue();
+        assertThat(StudentETag.matchesStrongly("W/\"3\"", 3L)).isFalse();
+    }
+}
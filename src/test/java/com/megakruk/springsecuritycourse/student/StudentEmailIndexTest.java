@@ -0,0 +1,50 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class StudentEmailIndexTest {
+
+    private final StudentEmailIndex underTest =
+            new StudentEmailIndex(mock(StudentRepo.class), mock(PlatformTransactionManager.class));
+
+    @Test
+    void itShouldCompareEmailsExactlyLikeTheDatabase() {
+        //given
+        underTest.put(1L, "Jimmy@Gmail.com");
+
+        //when
+        //then
+        assertThat(underTest.contains("Jimmy@Gmail.com")).isTrue();
+        assertThat(underTest.contains("jimmy@gmail.com")).isFalse();
+        assertThat(underTest.contains(" Jimmy@Gmail.com ")).isFalse();
+    }
+
+    @Test
+    void itShouldReleaseOldEmailWhenStudentChangesIt() {
+        //given
+        underTest.put(1L, "jimmy@gmail.com");
+
+        //when
+        underTest.put(1L, "jim@gmail.com");
+
+        //then
+        assertThat(underTest.contains("jimmy@gmail.com")).isFalse();
+        assertThat(underTest.contains("jim@gmail.com")).isTrue();
+    }
+
+    @Test
+    void itShouldReleaseEmailWhenStudentIsRemoved() {
+        //given
+        underTest.put(1L, "jimmy@gmail.com");
+
+        //when
+        underTest.remove(1L);
+
+        //then
+        assertThat(underTest.contains("jimmy@gmail.com")).isFalse();
+    }
+}
@@ -0,0 +1,64 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class StudentExporterTest {
+
+    private StudentExporter underTest;
+    @Mock
+    private StudentRepo studentRepo;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StudentExporter(studentRepo, new ObjectMapper());
+    }
+
+    @Test
+    void canExportCsv() throws IOException {
+        //given
+        StudentDto student = new StudentDto(1L, "Jim", "Bauman, Jr.", "jimmy@gmail.com", 0L);
+        given(studentRepo.streamStudentDtos()).willReturn(Stream.of(student));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //when
+        underTest.export(StudentExportFormat.CSV, output);
+
+        //then
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,firstName,lastName,email\n" +
+                "1,Jim,\"Bauman, Jr.\",jimmy@gmail.com\n"
+        );
+    }
+
+    @Test
+    void canExportNdjson() throws IOException {
+        //given
+        given(studentRepo.streamStudentDtos()).willReturn(Stream.of(
+                new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L),
+                new StudentDto(2L, "Mark", "Hamill", "mhamill@gmail.com", 0L)
+        ));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //when
+        underTest.export(StudentExportFormat.NDJSON, output);
+
+        //then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(new ObjectMapper().readValue(lines[1], Student.class).getEmail()).isEqualTo("mhamill@gmail.com");
+    }
+}
@@ -0,0 +1,89 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class StudentImportServiceTest {
+
+    @Autowired
+    private StudentRepo studentRepo;
+    @Autowired
+    private StudentChangeRepo studentChangeRepo;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private StudentImportService underTest;
+    private StudentConfig studentConfig;
+    private StudentChangeLog studentChangeLog;
+
+    @BeforeEach
+    void setUp() {
+        new StudentChangeCounterInitializer(entityManager, transactionManager).afterSingletonsInstantiated();
+        studentConfig = new StudentConfig();
+        studentConfig.setImportBatchSize(2);
+        studentChangeLog = new StudentChangeLog(entityManager, mock(StudentChangeFeed.class));
+        underTest = new StudentImportService(
+                studentRepo,
+                studentConfig,
+                entityManager,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new StudentEmailIndex(studentRepo, transactionManager),
+                new StudentSearchIndex(studentRepo, transactionManager),
+                studentChangeLog
+        );
+    }
+
+    @Test
+    void canImportStudentsAndReportRejectedRows() {
+        //given
+        studentRepo.saveAndFlush(new Student("Mark", "Hamill", "taken@gmail.com"));
+        List<Student> students = List.of(
+                new Student("Jim", "Bauman", "jimmy@gmail.com"),
+                new Student("Mark", "Hamill", "taken@gmail.com"),
+                new Student("J", "Bauman", "short@gmail.com"),
+                new Student("Jimmy", "Bauman", "jimmy@gmail.com"),
+                new Student("Anna", "Bauman", "anna@gmail.com")
+        );
+
+        //when
+        StudentBulkResult result = underTest.importStudents(students);
+        studentChangeLog.writePendingChanges();
+
+        //then
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(StudentBulkError::getIndex).containsExactly(1, 2, 3);
+        assertThat(studentRepo.count()).isEqualTo(3);
+        assertThat(studentRepo.selectExistsByEmail("anna@gmail.com")).isTrue();
+        assertThat(studentChangeRepo.count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldThrowWhenImportIsTooLarge() {
+        //given
+        studentConfig.setMaxImportSize(1);
+        List<Student> students = List.of(
+                new Student("Jim", "Bauman", "jimmy@gmail.com"),
+                new Student("Mark", "Hamill", "mhamill@gmail.com")
+        );
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.importStudents(students))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(studentRepo.count()).isZero();
+    }
+}
@@ -0,0 +1,128 @@
+package com.megakruk.springsecuritycourse.student;
+
+import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.PreconditionFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class StudentPatchServiceTest {
+
+    @Autowired
+    private StudentRepo studentRepo;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private StudentPatchService underTest;
+
+    @BeforeEach
+    void setUp() {
+        new StudentChangeCounterInitializer(entityManager, transactionManager).afterSingletonsInstantiated();
+        StudentConfig studentConfig = new StudentConfig();
+        underTest = new StudentPatchService(
+                studentRepo,
+                new StudentCache(studentRepo, studentConfig, new SimpleMeterRegistry()),
+                studentConfig,
+                entityManager,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new StudentEmailIndex(studentRepo, transactionManager),
+                new StudentSearchIndex(studentRepo, transactionManager),
+                new StudentChangeLog(entityManager, mock(StudentChangeFeed.class))
+        );
+    }
+
+    @Test
+    void canPatchOnlyGivenProperties() {
+        //given
+        Student student = studentRepo.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+
+        //when
+        Long version = underTest.patchStudent(student.getId(), Map.of("email", "jim@gmail.com"), "\"0\"");
+
+        //then
+        entityManager.clear();
+        Student patched = studentRepo.findStudentById(student.getId()).orElseThrow();
+        assertThat(patched.getEmail()).isEqualTo("jim@gmail.com");
+        assertThat(patched.getFirstName()).isEqualTo("Jim");
+        assertThat(patched.getVersion()).isEqualTo(1L).isEqualTo(version);
+    }
+
+    @Test
+    void shouldThrowWhenPatchingStaleVersion() {
+        //given
+        Student student = studentRepo.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.patchStudent(student.getId(), Map.of("firstName", "James"), "\"7\""))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void shouldThrowWhenPatchIsNotValid() {
+        //given
+        Student student = studentRepo.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+        studentRepo.saveAndFlush(new Student("Mark", "Hamill", "mhamill@gmail.com"));
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.patchStudent(student.getId(), Map.of("firstName", "J"), null))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> underTest.patchStudent(student.getId(), Map.of("id", 5), null))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> underTest.patchStudent(student.getId(), Map.of("email", "mhamill@gmail.com"), null))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("taken");
+    }
+
+    @Test
+    void canPatchStudentsInBulk() {
+        //given
+        Student student = studentRepo.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+
+        //when
+        StudentBulkResult result = underTest.patchStudents(List.of(
+                Map.of("id", student.getId().intValue(), "lastName", "Baumann"),
+                Map.of("id", -1, "lastName", "Nobody")
+        ));
+
+        //then
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(StudentBulkError::getIndex).containsExactly(1);
+    }
+
+    @Test
+    void shouldReportTakenEmailPerRowInBulk() {
+        //given
+        Student jim = studentRepo.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+        Student mark = studentRepo.saveAndFlush(new Student("Mark", "Hamill", "mhamill@gmail.com"));
+
+        //when
+        StudentBulkResult result = underTest.patchStudents(List.of(
+                Map.of("id", jim.getId().intValue(), "email", "mhamill@gmail.com"),
+                Map.of("id", mark.getId().intValue(), "lastName", "Hamil")
+        ));
+
+        //then
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(StudentBulkError::getIndex).containsExactly(0);
+        assertThat(result.getErrors()).extracting(StudentBulkError::getMessage).allMatch(message -> message.contains("taken"));
+        entityManager.clear();
+        assertThat(studentRepo.findStudentById(jim.getId()).orElseThrow().getEmail()).isEqualTo("jimmy@gmail.com");
+        assertThat(studentRepo.findStudentById(mark.getId()).orElseThrow().getLastName()).isEqualTo("Hamil");
+    }
+}
@@ -4,8 +4,12 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
 class StudentRepoTest {
@@ -47,4 +51,32 @@ class StudentRepoTest {
         //then
         assertThat(exists).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldSeekPastLastNameAndId() {
+        //given
+        Student first = underTest.save(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+        Student second = underTest.save(new Student("Anna", "Bauman", "anna@gmail.com"));
+        underTest.save(new Student("Mark", "Hamill", "mhamill@gmail.com"));
+
+        //when
+        Slice<StudentDto> page = underTest.selectStudentDtosAfterLastName(
+                first.getLastName(), first.getId(), PageRequest.of(0, 1));
+
+        //then
+        assertThat(page.getContent()).extracting(StudentDto::getId).isEqualTo(List.of(second.getId()));
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    void itShouldSelectOnlyExistingIdsForUpdate() {
+        //given
+        Student student = underTest.saveAndFlush(new Student("Jim", "Bauman", "jimmy@gmail.com"));
+
+        //when
+        List<Long> ids = underTest.selectIdsByIdInForUpdate(List.of(student.getId(), -1L));
+
+        //then
+        assertThat(ids).containsExactly(student.getId());
+    }
+}
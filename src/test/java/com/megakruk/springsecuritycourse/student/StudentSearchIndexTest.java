@@ -0,0 +1,124 @@
+package com.megakruk.springsecuritycourse.student;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class StudentSearchIndexTest {
+
+    private final StudentSearchIndex underTest =
+            new StudentSearchIndex(mock(StudentRepo.class), mock(PlatformTransactionManager.class));
+
+    @Test
+    void itShouldRankExactThenPrefixThenSubstringMatches() {
+        //given
+        underTest.put(new StudentDto(1L, "Anna", "Hamilton", "anna@gmail.com", 0L));
+        underTest.put(new StudentDto(2L, "Mark", "Graham", "mark@gmail.com", 0L));
+        underTest.put(new StudentDto(3L, "Ham", "Solo", "solo@gmail.com", 0L));
+        underTest.put(new StudentDto(4L, "Jim", "Bauman", "jimmy@gmail.com", 0L));
+
+        //when
+        List<StudentDto> students = underTest.search("HAM", 0, 10);
+
+        //then
+        assertThat(students).extracting(StudentDto::getId).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    void itShouldMatchShortQueriesByPrefixOnly() {
+        //given
+        underTest.put(new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L));
+        underTest.put(new StudentDto(2L, "Mark", "Hamill", "mhamill@gmail.com", 0L));
+
+        //when
+        List<StudentDto> students = underTest.search("ha", 0, 10);
+
+        //then
+        assertThat(students).extracting(StudentDto::getId).containsExactly(2L);
+    }
+
+    @Test
+    void itShouldPageThroughRankedMatches() {
+        //given
+        for (long id = 1; id <= 5; id++)
+            underTest.put(new StudentDto(id, "Student", "Last" + id, "student" + id + "@gmail.com", 0L));
+
+        //when
+        List<StudentDto> students = underTest.search("student", 2, 2);
+
+        //then
+        assertThat(students).extracting(StudentDto::getId).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void itShouldForgetOldValuesOnUpdatePatchAndRemove() {
+        //given
+        underTest.put(new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L));
+        underTest.put(new StudentDto(2L, "Mark", "Hamill", "mhamill@gmail.com", 0L));
+
+        //when
+        underTest.put(new StudentDto(1L, "James", "Bauman", "james@gmail.com", 1L));
+        underTest.patch(2L, Map.of("lastName", "Skywalker"));
+        underTest.remove(1L);
+
+        //then
+        assertThat(underTest.search("jim", 0, 10)).isEmpty();
+        assertThat(underTest.search("bauman", 0, 10)).isEmpty();
+        assertThat(underTest.search("hamill", 0, 10)).extracting(StudentDto::getId).containsExactly(2L);
+        assertThat(underTest.search("skywalker", 0, 10))
+                .extracting(StudentDto::getVersion).containsExactly(1L);
+    }
+
+    @Test
+    void itShouldStillFindStudentsAfterCompaction() {
+        //given
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 1_000; id++)
+                underTest.put(new StudentDto(id, "Student", "Last" + id, "student" + id + "@gmail.com", (long) round));
+        }
+
+        //when
+        List<StudentDto> students = underTest.search("last999", 0, 10);
+
+        //then
+        assertThat(underTest.size()).isEqualTo(1_000);
+        assertThat(students).extracting(StudentDto::getVersion).containsExactly(2L);
+    }
+
+    @Test
+    void itShouldNotLoseConcurrentPatches() throws Exception {
+        //given
+        underTest.put(new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L));
+        ExecutorService patchers = Executors.newFixedThreadPool(2);
+
+        //when
+        try {
+            Future<?> firstNames = patchers.submit(() -> {
+                for (int i = 0; i < 1_000; i++)
+                    underTest.patch(1L, Map.of("firstName", "First" + i));
+            });
+            Future<?> lastNames = patchers.submit(() -> {
+                for (int i = 0; i < 1_000; i++)
+                    underTest.patch(1L, Map.of("lastName", "Last" + i));
+            });
+            firstNames.get();
+            lastNames.get();
+        } finally {
+            patchers.shutdownNow();
+        }
+
+        //then
+        assertThat(underTest.search("first999", 0, 10)).singleElement().satisfies(student -> {
+            assertThat(student.getLastName()).isEqualTo("Last999");
+            assertThat(student.getVersion()).isEqualTo(2_000L);
+        });
+    }
+}
@@ -1,41 +1,96 @@
 package com.megakruk.springsecuritycourse.student;
 
 import com.megakruk.springsecuritycourse.exception.BadRequestException;
+import com.megakruk.springsecuritycourse.exception.PreconditionFailedException;
+import com.megakruk.springsecuritycourse.exception.ServiceUnavailableException;
 import com.megakruk.springsecuritycourse.exception.UserNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class StudentServiceTest {
 
     private StudentService underTest;
+    private StudentEmailIndex studentEmailIndex;
+    private StudentSearchIndex studentSearchIndex;
     @Mock
     private StudentRepo studentRepo;
+    @Mock
+    private StudentChangeLog studentChangeLog;
 
     @BeforeEach
     void setUp() {
-        underTest = new StudentService(studentRepo);
+        StudentConfig studentConfig = new StudentConfig();
+        StudentCache studentCache = new StudentCache(studentRepo, studentConfig, new SimpleMeterRegistry());
+        studentEmailIndex = new StudentEmailIndex(studentRepo, mock(PlatformTransactionManager.class));
+        studentSearchIndex = new StudentSearchIndex(studentRepo, mock(PlatformTransactionManager.class));
+        underTest = new StudentService(
+                studentRepo, studentConfig, studentCache, studentEmailIndex, studentSearchIndex, studentChangeLog);
     }
 
     @Test
     void canFindAllStudents() {
+        //given
+        PageRequest firstPage = PageRequest.of(0, 50, Sort.by("id"));
+        given(studentRepo.selectStudentDtos(firstPage)).willReturn(new SliceImpl<>(List.of()));
+
         //when
-        underTest.findAllStudents();
+        underTest.findAllStudents(null);
+
+        //then
+        verify(studentRepo).selectStudentDtos(firstPage);
+    }
+
+    @Test
+    void canFindNextPageOfStudents() {
+        //given
+        StudentDto last = new StudentDto(7L, "Mark", "Hamill", "mhamill@gmail.com", 0L);
+        PageRequest firstPage = PageRequest.of(0, 1, Sort.by("lastName", "id"));
+        given(studentRepo.selectStudentDtos(firstPage))
+                .willReturn(new SliceImpl<>(List.of(last), firstPage, true));
+        given(studentRepo.selectStudentDtosAfterLastName("Hamill", 7L, PageRequest.of(0, 1)))
+                .willReturn(new SliceImpl<>(List.of()));
+        StudentPage page = underTest.findStudents(null, 1, StudentSort.LAST_NAME);
+
+        //when
+        StudentPage nextPage = underTest.findStudents(page.getNextCursor(), 1, StudentSort.LAST_NAME);
+
         //then
-        verify(studentRepo).findAll();
+        assertThat(page.getNextCursor()).isNotNull();
+        assertThat(nextPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldThrowWhenCursorIsNotValid() {
+        assertThatThrownBy(() -> underTest.findStudents("not a cursor", null, StudentSort.ID))
+                .isInstanceOf(BadRequestException.class);
     }
 
     @Test
@@ -46,16 +101,18 @@ class StudentServiceTest {
                 "Bauman",
                 "jimmy@gmail.com"
         );
+        given(studentRepo.saveAndFlush(student)).willReturn(student);
 
         //when
         underTest.addStudent(student);
 
         //then
         ArgumentCaptor<Student> studentArgumentCaptor = ArgumentCaptor.forClass(Student.class);
-        verify(studentRepo).save(studentArgumentCaptor.capture());
+        verify(studentRepo).saveAndFlush(studentArgumentCaptor.capture());
         Student captorValue = studentArgumentCaptor.getValue();
 
         assertThat(captorValue).isEqualTo(student);
+        verify(studentChangeLog).record(student.getId(), StudentChangeType.UPSERT);
     }
 
     @Test
@@ -76,26 +133,83 @@ class StudentServiceTest {
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("taken");
 
-        verify(studentRepo, never()).save(any());
+        verify(studentRepo, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void shouldThrowWhenEmailIsInIndex() {
+        //given
+        given(studentRepo.streamStudentDtos()).willReturn(Stream.of(
+                new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L)
+        ));
+        studentEmailIndex.load();
+        Student student = new Student("Jim", "Bauman", "jimmy@gmail.com");
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.addStudent(student))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("taken");
+        verify(studentRepo, never()).selectExistsByEmail(any());
+        verify(studentRepo, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void shouldThrowWhenEmailConstraintIsViolated() {
+        //given
+        Student student = new Student("Jim", "Bauman", "jimmy@gmail.com");
+        given(studentRepo.saveAndFlush(student)).willThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new ConstraintViolationException("duplicate key", null, "student_email_unique")
+        ));
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.addStudent(student))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("taken");
+    }
+
+    @Test
+    void canSearchStudentsOnceIndexIsLoaded() {
+        //given
+        given(studentRepo.streamStudentDtos()).willReturn(Stream.of(
+                new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L),
+                new StudentDto(2L, "Mark", "Hamill", "mhamill@gmail.com", 0L)
+        ));
+        studentSearchIndex.load();
+
+        //when
+        List<StudentDto> students = underTest.searchStudents("ham", null, null);
+
+        //then
+        assertThat(students).extracting(StudentDto::getId).containsExactly(2L);
+    }
+
+    @Test
+    void shouldThrowWhenSearchIndexIsNotLoaded() {
+        assertThatThrownBy(() -> underTest.searchStudents("ham", null, null))
+                .isInstanceOf(ServiceUnavailableException.class);
     }
 
     @Test
     void canFindStudentById() {
         //given
         long id = 1;
-        Student student = new Student(
+        StudentDto student = new StudentDto(
                 1L,
                 "Mark",
                 "Hamill",
-                "mhamill@gmail.com"
+                "mhamill@gmail.com",
+                0L
         );
-        given(studentRepo.findStudentById(id)).willReturn(java.util.Optional.of(student));
+        given(studentRepo.selectStudentDtoById(id)).willReturn(java.util.Optional.of(student));
 
         //when
         underTest.findStudentById(id);
 
         //then
-        verify(studentRepo).findStudentById(id);
+        verify(studentRepo).selectStudentDtoById(id);
     }
 
     @Test
@@ -103,7 +217,7 @@ class StudentServiceTest {
         //given
         long id = 1;
 
-        given(studentRepo.findStudentById(id)).willReturn(Optional.empty());
+        given(studentRepo.selectStudentDtoById(id)).willReturn(Optional.empty());
 
         //when
 
@@ -142,24 +256,85 @@ class StudentServiceTest {
                 .isEqualTo(updatedStudent.getEmail());
     }
 
+    @Test
+    void shouldThrowWhenUpdateStudentWithStaleETag() {
+        //given
+        long id = 1;
+        Student student = new Student(id, "Jim", "Bauman", "jimmy@gmail.com");
+        student.setVersion(2L);
+        given(studentRepo.findStudentById(id)).willReturn(Optional.of(student));
+        Student updatedStudent = new Student("Mark", "Hamill", "mhamill@gmail.com");
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.updateStudent(id, updatedStudent, "\"1\""))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(student.getFirstName()).isEqualTo("Jim");
+    }
+
+    @Test
+    void canFindStudentVersionWithoutLoadingStudent() {
+        //given
+        long id = 1;
+        given(studentRepo.selectVersionById(id)).willReturn(Optional.of(3L));
+
+        //when
+        Long version = underTest.findStudentVersion(id);
+
+        //then
+        assertThat(version).isEqualTo(3L);
+        verify(studentRepo, never()).selectStudentDtoById(id);
+    }
+
+    @Test
+    void canFindStudentsByIdsInRequestOrder() {
+        //given
+        given(studentRepo.selectStudentDtosByIdIn(List.of(3L, 1L, 2L))).willReturn(List.of(
+                new StudentDto(1L, "Jim", "Bauman", "jimmy@gmail.com", 0L),
+                new StudentDto(3L, "Mark", "Hamill", "mhamill@gmail.com", 0L)
+        ));
+
+        //when
+        StudentBatch batch = underTest.findStudentsByIds(List.of(3L, 1L, 2L, 3L));
+
+        //then
+        assertThat(batch.getStudents()).extracting(StudentDto::getId).containsExactly(3L, 1L);
+        assertThat(batch.getMissingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void shouldThrowWhenTooManyIdsAreRequested() {
+        //given
+        List<Long> ids = new ArrayList<>();
+        for (long id = 0; id <= new StudentConfig().getMaxBatchSize(); id++)
+            ids.add(id);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.findStudentsByIds(ids))
+                .isInstanceOf(BadRequestException.class);
+    }
+
     @Test
     void canDeleteStudent() {
         //given
         long id = 1;
-        given(studentRepo.existsById(id)).willReturn(true);
+        given(studentRepo.deleteStudentById(id)).willReturn(1);
 
         //when
         underTest.deleteStudent(id);
 
         //then
         verify(studentRepo).deleteStudentById(id);
+        verify(studentRepo, never()).existsById(id);
+        verify(studentChangeLog).record(id, StudentChangeType.DELETE);
     }
 
     @Test
     void ShouldThrowWhenDeleteStudent() {
         //given
         long id = 1;
-        given(studentRepo.existsById(id)).willReturn(false);
+        given(studentRepo.deleteStudentById(id)).willReturn(0);
 
         //when
 
@@ -167,6 +342,39 @@ class StudentServiceTest {
         assertThatThrownBy(() -> underTest.deleteStudent(id))
                 .isInstanceOf(UserNotFoundException.class)
                 .hasMessageContaining("not found");
-        verify(studentRepo, never()).deleteStudentById(id);
+    }
+
+    @Test
+    void canDeleteStudentsInChunks() {
+        //given
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 501; id++)
+            ids.add(id);
+        ids.add(null);
+        given(studentRepo.selectIdsByIdInForUpdate(anyCollection())).willAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+        given(studentRepo.deleteStudentsByIdIn(anyCollection())).willReturn(500, 1);
+
+        //when
+        StudentBulkResult result = underTest.deleteStudents(ids);
+
+        //then
+        verify(studentRepo, times(2)).deleteStudentsByIdIn(anyCollection());
+        assertThat(result.getSucceeded()).isEqualTo(501);
+        assertThat(result.getErrors()).extracting(StudentBulkError::getIndex).containsExactly(501);
+    }
+
+    @Test
+    void shouldOnlyRecordStudentsThatWereDeleted() {
+        //given
+        given(studentRepo.selectIdsByIdInForUpdate(List.of(1L, 2L))).willReturn(List.of(1L));
+        given(studentRepo.deleteStudentsByIdIn(List.of(1L))).willReturn(1);
+
+        //when
+        StudentBulkResult result = underTest.deleteStudents(List.of(1L, 2L));
+
+        //then
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        verify(studentChangeLog).record(1L, StudentChangeType.DELETE);
+        verify(studentChangeLog, never()).record(2L, StudentChangeType.DELETE);
     }
 }
\ No newline at end of file